@@ -0,0 +1,3 @@
+CREATE INDEX tasks_user_id_created_idx ON tasks (user_id, created, id);
+CREATE INDEX tasks_user_id_done_created_idx ON tasks (user_id, done, created, id);
+CREATE INDEX task_categories_category_id_idx ON task_categories (category_id);
@@ -0,0 +1,8 @@
+--liquibase formatted sql
+
+--changeset todo:013_ddl_alter_tasks_id_sequence dbms:postgresql
+ALTER SEQUENCE tasks_id_seq INCREMENT BY 50;
+
+--changeset todo:013_ddl_create_tasks_id_sequence dbms:h2
+CREATE SEQUENCE tasks_id_seq START WITH 1 INCREMENT BY 50;
+ALTER SEQUENCE tasks_id_seq RESTART WITH (SELECT COALESCE(MAX(id), 0) + 50 FROM tasks);
@@ -0,0 +1,11 @@
+--liquibase formatted sql
+
+--changeset todo:014_ddl_alter_tasks_table_add_search dbms:postgresql
+ALTER TABLE tasks ADD COLUMN search tsvector GENERATED ALWAYS AS (
+    setweight(to_tsvector('russian', COALESCE(title, '')), 'A')
+    || setweight(to_tsvector('russian', COALESCE(description, '')), 'B')) STORED;
+CREATE INDEX tasks_search_idx ON tasks USING GIN (search);
+
+--changeset todo:014_ddl_alter_tasks_table_add_search_h2 dbms:h2
+ALTER TABLE tasks ADD COLUMN search VARCHAR GENERATED ALWAYS AS (
+    LOWER(COALESCE(title, '') || ' ' || COALESCE(description, '')));
@@ -0,0 +1 @@
+CREATE INDEX tasks_user_id_priority_id_created_idx ON tasks (user_id, priority_id, created, id);
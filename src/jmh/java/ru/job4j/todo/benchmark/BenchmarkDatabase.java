@@ -0,0 +1,75 @@
+package ru.job4j.todo.benchmark;
+
+import liquibase.Contexts;
+import liquibase.Liquibase;
+import liquibase.database.DatabaseFactory;
+import liquibase.database.jvm.JdbcConnection;
+import liquibase.resource.FileSystemResourceAccessor;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Базы H2 в режиме PostgreSQL для замеров: для каждого сочетания объема и числа категорий
+ * на задание создается своя база в "target/jmh-db", схема накатывается Liquibase
+ * из "db/dbchangelog.xml", данные генерируются SQL-запросами и переиспользуются
+ * при повторных запусках.
+ */
+final class BenchmarkDatabase {
+
+    private BenchmarkDatabase() {
+    }
+
+    static String url(int volume, int categoriesPerTask) {
+        return "jdbc:h2:" + new File("target/jmh-db/tasks_" + volume + "_" + categoriesPerTask).getAbsolutePath()
+                + ";MODE=PostgreSQL;CASE_INSENSITIVE_IDENTIFIERS=TRUE;";
+    }
+
+    /**
+     * Создает схему и генерирует данные, если база пуста или заполнена для другого объема.
+     * В заполненную базу докатываются новые миграции.
+     */
+    static void seed(Connection connection, int volume, int categoriesPerTask) throws Exception {
+        try (var statement = connection.createStatement()) {
+            try (var rs = statement.executeQuery("SELECT "
+                    + "(SELECT COUNT(*) FROM tasks), (SELECT COUNT(*) FROM task_categories)")) {
+                if (rs.next() && rs.getLong(1) == volume && rs.getLong(2) == (long) volume * categoriesPerTask) {
+                    migrate(connection);
+                    return;
+                }
+            } catch (SQLException e) {
+                /* схемы еще нет */
+            }
+            statement.execute("DROP ALL OBJECTS");
+        }
+        migrate(connection);
+        connection.setAutoCommit(false);
+        try (var statement = connection.createStatement()) {
+            statement.executeUpdate("INSERT INTO todo_user (name, login, password, user_zone) "
+                    + "VALUES ('bench', 'bench', 'bench', 'UTC')");
+            statement.executeUpdate("INSERT INTO categories (name) SELECT 'bench' || X FROM SYSTEM_RANGE(1, "
+                    + categoriesPerTask + ")");
+            statement.executeUpdate("INSERT INTO tasks (title, description, created, done, user_id, priority_id) "
+                    + "SELECT 'task ' || X, REPEAT('description ', 20), "
+                    + "DATEADD(SECOND, X, TIMESTAMP '2024-01-01 00:00:00'), MOD(X, 2) = 0, "
+                    + "(SELECT MIN(id) FROM todo_user), (SELECT MIN(id) FROM priorities) + MOD(X, 2) "
+                    + "FROM SYSTEM_RANGE(1, " + volume + ")");
+            statement.executeUpdate("INSERT INTO task_categories (task_id, category_id) "
+                    + "SELECT t.id, c.id FROM tasks t "
+                    + "JOIN (SELECT id, ROW_NUMBER() OVER (ORDER BY id) AS rn FROM categories) c "
+                    + "ON c.rn <= " + categoriesPerTask);
+            statement.execute("ALTER SEQUENCE tasks_id_seq RESTART WITH (SELECT MAX(id) + 50 FROM tasks)");
+        }
+        connection.commit();
+        connection.setAutoCommit(true);
+    }
+
+    private static void migrate(Connection connection) throws Exception {
+        var database = DatabaseFactory.getInstance()
+                .findCorrectDatabaseImplementation(new JdbcConnection(connection));
+        new Liquibase("db/dbchangelog.xml", new FileSystemResourceAccessor(new File(".")), database)
+                .update(new Contexts());
+        connection.setAutoCommit(true);
+    }
+}
@@ -0,0 +1,171 @@
+package ru.job4j.todo.benchmark;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
+import org.hibernate.Hibernate;
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+import org.openjdk.jmh.annotations.*;
+import ru.job4j.todo.model.Task;
+import ru.job4j.todo.repository.CrudRepository;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнивает загрузку страницы заданий с категориями до и после {@code @BatchSize} на
+ * {@link Task#getCategories()}: одним запросом {@code SELECT DISTINCT ... JOIN FETCH t.categories}
+ * и в две фазы - задания с приоритетом, затем категории всех заданий пакетным запросом.
+ * Кроме времени и памяти (профилировщик GC) считаются строки и байты, переданные базой: результаты
+ * оборачиваются datasource-proxy, байты строки - сумма размеров всех ее столбцов (строки - в UTF-8,
+ * числа и даты - по размеру типа), без накладных расходов протокола. Hibernate читает столбцы
+ * повторяющегося задания один раз, поэтому считаются все столбцы, а не только прочитанные.
+ * Соединения берутся из Hikari, чтобы встроенная база не закрывалась между операциями.
+ * Строки и байты на операцию печатаются в конце прогона.
+ * Запуск: {@code mvn -Ptest,jmh test-compile exec:exec@jmh -Djmh.include=CategoryFetchBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CategoryFetchBenchmark {
+
+    private static final int VOLUME = 10000;
+    private static final String JOIN_FETCH = "SELECT DISTINCT t FROM Task t LEFT JOIN FETCH t.priority "
+            + "LEFT JOIN FETCH t.categories WHERE t.id IN :ids ORDER BY t.created, t.id";
+    private static final String TASKS = "FROM Task t LEFT JOIN FETCH t.priority "
+            + "WHERE t.id IN :ids ORDER BY t.created, t.id";
+
+    @Param({"1", "3"})
+    private int categoriesPerTask;
+
+    @Param({"20", "100"})
+    private int pageSize;
+
+    private HikariDataSource hikari;
+    private SessionFactory sf;
+    private CrudRepository crudRepository;
+    private List<Integer> ids;
+    private long operations;
+    private long rows;
+    private long bytes;
+    private String variant;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        var url = BenchmarkDatabase.url(VOLUME, categoriesPerTask);
+        ids = new ArrayList<>();
+        try (Connection connection = DriverManager.getConnection(url)) {
+            BenchmarkDatabase.seed(connection, VOLUME, categoriesPerTask);
+            try (var statement = connection.createStatement();
+                 var rs = statement.executeQuery("SELECT id FROM tasks ORDER BY created, id "
+                         + "FETCH FIRST " + pageSize + " ROWS ONLY")) {
+                while (rs.next()) {
+                    ids.add(rs.getInt(1));
+                }
+            }
+        }
+        var config = new HikariConfig();
+        config.setJdbcUrl(url);
+        config.setMaximumPoolSize(2);
+        hikari = new HikariDataSource(config);
+        var dataSource = ProxyDataSourceBuilder.create(hikari)
+                .proxyResultSet()
+                .afterMethod(context -> {
+                    if (context.getTarget() instanceof ResultSet rs && "next".equals(context.getMethod().getName())
+                            && Boolean.TRUE.equals(context.getResult())) {
+                        rows++;
+                        bytes += size(rs);
+                    }
+                })
+                .build();
+        var builder = new StandardServiceRegistryBuilder().configure();
+        builder.getSettings().keySet().removeAll(
+                List.of(AvailableSettings.DRIVER, AvailableSettings.URL, AvailableSettings.USER, AvailableSettings.PASS));
+        var registry = builder
+                .applySetting(AvailableSettings.DATASOURCE, dataSource)
+                .applySetting(AvailableSettings.SHOW_SQL, false)
+                .build();
+        sf = new MetadataSources(registry).buildMetadata().buildSessionFactory();
+        crudRepository = new CrudRepository(sf, new SimpleMeterRegistry());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        sf.close();
+        hikari.close();
+        if (operations > 0) {
+            System.out.printf("%n%s, categoriesPerTask=%d, pageSize=%d: %d rows/op, %d bytes/op%n",
+                    variant, categoriesPerTask, pageSize, rows / operations, bytes / operations);
+        }
+    }
+
+    private static long size(ResultSet rs) {
+        try {
+            long size = 0;
+            for (int i = 1; i <= rs.getMetaData().getColumnCount(); i++) {
+                size += size(rs.getObject(i));
+            }
+            return size;
+        } catch (SQLException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static long size(Object value) {
+        if (value instanceof String string) {
+            return string.getBytes(StandardCharsets.UTF_8).length;
+        }
+        if (value instanceof Integer || value instanceof Float) {
+            return Integer.BYTES;
+        }
+        if (value instanceof Boolean) {
+            return 1;
+        }
+        if (value instanceof Number || value instanceof java.util.Date) {
+            return Long.BYTES;
+        }
+        return 0;
+    }
+
+    /**
+     * До: декартово произведение заданий и категорий, каждая строка несет все столбцы
+     * задания, приоритета и категории
+     */
+    @Benchmark
+    public List<Task> joinFetch() {
+        variant = "joinFetch";
+        operations++;
+        return crudRepository.query(session -> session.createQuery(JOIN_FETCH, Task.class)
+                .setParameter("ids", ids)
+                .list());
+    }
+
+    /**
+     * После: строки заданий с приоритетом и узкие строки категорий одним пакетным запросом
+     */
+    @Benchmark
+    public List<Task> batchSize() {
+        variant = "batchSize";
+        operations++;
+        return crudRepository.query(session -> {
+            var tasks = session.createQuery(TASKS, Task.class)
+                    .setParameter("ids", ids)
+                    .list();
+            tasks.forEach(task -> Hibernate.initialize(task.getCategories()));
+            return tasks;
+        });
+    }
+}
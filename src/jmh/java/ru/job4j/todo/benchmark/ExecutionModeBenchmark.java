@@ -0,0 +1,118 @@
+package ru.job4j.todo.benchmark;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+import org.openjdk.jmh.annotations.*;
+import ru.job4j.todo.configuration.VirtualThreadConfiguration;
+import ru.job4j.todo.repository.CrudRepository;
+import ru.job4j.todo.repository.task.Store;
+import ru.job4j.todo.repository.task.TaskFilter;
+import ru.job4j.todo.repository.task.TaskStore;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Нагрузочный замер режимов выполнения запросов: пул из 200 потоков платформы (как у Tomcat
+ * по умолчанию) против виртуального потока на запрос ({@code todo.virtual-threads.enabled}).
+ * Одна операция - {@code concurrency} одновременных "запросов", каждый ждет {@code latencyMillis}
+ * (сетевой обмен с клиентом) и читает первую страницу списка через {@link TaskStore}.
+ * Соединения берутся из Hikari с размером пула как в application.properties.
+ * Пропускная способность - в операциях в секунду, память - по профилировщику GC.
+ * Запуск: {@code mvn -Ptest,jmh test-compile exec:exec@jmh -Djmh.include=ExecutionModeBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 3, time = 3)
+@Fork(1)
+public class ExecutionModeBenchmark {
+
+    private static final int VOLUME = 10000;
+    private static final int CATEGORIES_PER_TASK = 3;
+    private static final int PAGE_SIZE = 21;
+    private static final int PLATFORM_THREADS = 200;
+    private static final int POOL_SIZE = 20;
+
+    @Param({"platform", "virtual"})
+    private String mode;
+
+    @Param({"1000"})
+    private int concurrency;
+
+    @Param({"0", "5"})
+    private int latencyMillis;
+
+    private HikariDataSource dataSource;
+    private SessionFactory sf;
+    private Store store;
+    private ExecutorService executor;
+    private int userId;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        var url = BenchmarkDatabase.url(VOLUME, CATEGORIES_PER_TASK);
+        try (Connection connection = DriverManager.getConnection(url)) {
+            BenchmarkDatabase.seed(connection, VOLUME, CATEGORIES_PER_TASK);
+            try (var statement = connection.createStatement();
+                 var rs = statement.executeQuery("SELECT MIN(user_id) FROM tasks")) {
+                rs.next();
+                userId = rs.getInt(1);
+            }
+        }
+        var config = new HikariConfig();
+        config.setJdbcUrl(url);
+        config.setMaximumPoolSize(POOL_SIZE);
+        config.setConnectionTimeout(30000);
+        dataSource = new HikariDataSource(config);
+        var builder = new StandardServiceRegistryBuilder().configure();
+        builder.getSettings().keySet().removeAll(
+                List.of(AvailableSettings.DRIVER, AvailableSettings.URL, AvailableSettings.USER, AvailableSettings.PASS));
+        var registry = builder
+                .applySetting(AvailableSettings.DATASOURCE, dataSource)
+                .applySetting(AvailableSettings.SHOW_SQL, false)
+                .build();
+        sf = new MetadataSources(registry).buildMetadata().buildSessionFactory();
+        store = new TaskStore(new CrudRepository(sf, new SimpleMeterRegistry()));
+        executor = "virtual".equals(mode)
+                ? VirtualThreadConfiguration.newVirtualThreadPerTaskExecutor()
+                : Executors.newFixedThreadPool(PLATFORM_THREADS);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        executor.shutdownNow();
+        sf.close();
+        dataSource.close();
+    }
+
+    @Benchmark
+    public int requests() throws Exception {
+        var requests = new ArrayList<Callable<Integer>>(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            requests.add(() -> {
+                if (latencyMillis > 0) {
+                    Thread.sleep(latencyMillis);
+                }
+                return store.findAll(userId, TaskFilter.ALL, null, PAGE_SIZE).size();
+            });
+        }
+        int rows = 0;
+        for (var future : executor.invokeAll(requests)) {
+            rows += future.get();
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,86 @@
+package ru.job4j.todo.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+import org.openjdk.jmh.annotations.*;
+import ru.job4j.todo.model.Task;
+import ru.job4j.todo.repository.CrudRepository;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сравнивает загрузку заданий с категориями в транзакции только на чтение ({@code CrudRepository.query})
+ * и в транзакции на запись ({@code CrudRepository.tx}): во второй сущности получают снимки
+ * для dirty checking, а при фиксации сессия сбрасывается и сравнивает их с текущим состоянием.
+ * Память на операцию - по профилировщику GC ({@code gc.alloc.rate.norm}).
+ * Запуск: {@code mvn -Ptest,jmh test-compile exec:exec@jmh -Djmh.include=ReadOnlyTransactionBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReadOnlyTransactionBenchmark {
+
+    private static final int VOLUME = 10000;
+    private static final int CATEGORIES_PER_TASK = 2;
+    private static final String QUERY = "SELECT DISTINCT t FROM Task t JOIN FETCH t.categories "
+            + "WHERE t.user.id = :userId AND t.id <= :maxId";
+
+    @Param({"100", "5000"})
+    private int tasks;
+
+    private SessionFactory sf;
+    private CrudRepository crudRepository;
+    private Map<String, Object> args;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        var url = BenchmarkDatabase.url(VOLUME, CATEGORIES_PER_TASK);
+        int userId;
+        int minId;
+        try (Connection connection = DriverManager.getConnection(url)) {
+            BenchmarkDatabase.seed(connection, VOLUME, CATEGORIES_PER_TASK);
+            try (var statement = connection.createStatement();
+                 var rs = statement.executeQuery("SELECT MIN(user_id), MIN(id) FROM tasks")) {
+                rs.next();
+                userId = rs.getInt(1);
+                minId = rs.getInt(2);
+            }
+        }
+        var registry = new StandardServiceRegistryBuilder().configure()
+                .applySetting(AvailableSettings.URL, url)
+                .applySetting(AvailableSettings.SHOW_SQL, false)
+                .build();
+        sf = new MetadataSources(registry).buildMetadata().buildSessionFactory();
+        crudRepository = new CrudRepository(sf, new SimpleMeterRegistry());
+        args = Map.of("userId", userId, "maxId", minId + tasks - 1);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        sf.close();
+    }
+
+    @Benchmark
+    public List<Task> readOnly() {
+        return crudRepository.query(QUERY, Task.class, args);
+    }
+
+    @Benchmark
+    public List<Task> readWrite() {
+        return crudRepository.tx(session -> {
+            var query = session.createQuery(QUERY, Task.class);
+            args.forEach(query::setParameter);
+            return query.list();
+        });
+    }
+}
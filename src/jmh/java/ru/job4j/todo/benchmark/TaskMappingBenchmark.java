@@ -0,0 +1,178 @@
+package ru.job4j.todo.benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import ru.job4j.todo.dto.PageDTO;
+import ru.job4j.todo.dto.TaskDTO;
+import ru.job4j.todo.dto.TaskExportDTO;
+import ru.job4j.todo.dto.TaskFilterDTO;
+import ru.job4j.todo.dto.TaskRowDTO;
+import ru.job4j.todo.model.Category;
+import ru.job4j.todo.model.Priority;
+import ru.job4j.todo.model.Task;
+import ru.job4j.todo.model.User;
+import ru.job4j.todo.repository.task.Store;
+import ru.job4j.todo.repository.task.TaskCursor;
+import ru.job4j.todo.repository.task.TaskFilter;
+import ru.job4j.todo.repository.task.UpdateResult;
+import ru.job4j.todo.service.task.SimpleTaskService;
+import ru.job4j.todo.service.task.TaskService;
+import ru.job4j.todo.service.task.TaskVersions;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Замеряет преобразования между заданиями и DTO в {@link SimpleTaskService} без базы данных:
+ * хранилище заменено заглушкой, возвращающей заранее подготовленные данные.
+ * Запуск с профилировщиком GC: {@code mvn -Ptest,jmh test-compile exec:exec@jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TaskMappingBenchmark {
+
+    @Param({"20", "200"})
+    private int taskCount;
+
+    @Param({"0", "3", "10"})
+    private int categoryCount;
+
+    private TaskService service;
+    private StubStore store;
+    private User user;
+    private List<TaskDTO> taskDtos;
+
+    @Setup
+    public void setUp() {
+        user = new User();
+        user.setId(1);
+        user.setName("user");
+        user.setTimezone("Europe/Moscow");
+        var priority = new Priority();
+        priority.setId(1);
+        priority.setName("high");
+        var categories = new ArrayList<Category>();
+        for (int i = 0; i < categoryCount; i++) {
+            categories.add(new Category(i + 1, "category" + i));
+        }
+        var created = LocalDateTime.of(2024, 1, 1, 10, 0);
+        var tasks = new ArrayList<Task>();
+        for (int i = 0; i < taskCount; i++) {
+            tasks.add(new Task(i + 1, "task" + i, "description" + i, created.plusMinutes(i), i % 2 == 0,
+                    user, priority, Set.copyOf(categories), 0));
+        }
+        var categoryNames = categories.stream().map(Category::getName).sorted().collect(Collectors.joining(", "));
+        var rows = tasks.stream()
+                .map(task -> new TaskRowDTO(task.getId(), task.getTitle(), task.getCreated(), task.isDone(),
+                        priority.getId(), priority.getName(), categoryNames))
+                .toList();
+        store = new StubStore(tasks, rows);
+        service = new SimpleTaskService(store, new TaskVersions());
+        taskDtos = tasks.stream()
+                .map(task -> service.findById(task.getId(), user).orElseThrow())
+                .toList();
+    }
+
+    /**
+     * Задание в DTO: {@code taskToTaskDto}
+     */
+    @Benchmark
+    public Optional<TaskDTO> taskToTaskDto() {
+        return service.findById(1, user);
+    }
+
+    /**
+     * Страница списка: строки проекции в DTO
+     */
+    @Benchmark
+    public PageDTO<TaskDTO> pageToTaskDtos() {
+        return service.findAll(user, new TaskFilterDTO(), null);
+    }
+
+    /**
+     * DTO в задания: {@code taskDtoToTask} для {@code taskCount} заданий
+     */
+    @Benchmark
+    public Collection<Task> taskDtosToTasks() {
+        service.saveAll(taskDtos, user);
+        return store.saved;
+    }
+
+    private static class StubStore implements Store {
+        private final List<Task> tasks;
+        private final List<TaskRowDTO> rows;
+        private Collection<Task> saved;
+
+        StubStore(List<Task> tasks, List<TaskRowDTO> rows) {
+            this.tasks = tasks;
+            this.rows = rows;
+        }
+
+        @Override
+        public List<TaskRowDTO> findAll(int userId, TaskFilter filter, TaskCursor after, int limit) {
+            return rows.size() > limit ? rows.subList(0, limit) : rows;
+        }
+
+        @Override
+        public List<TaskRowDTO> search(int userId, String query, int offset, int limit) {
+            return findAll(userId, TaskFilter.ALL, null, limit);
+        }
+
+        @Override
+        public Optional<Task> findById(int userId, int id) {
+            return id > 0 && id <= tasks.size() ? Optional.of(tasks.get(id - 1)) : Optional.empty();
+        }
+
+        @Override
+        public boolean exportAll(int userId, Consumer<TaskExportDTO> consumer) {
+            return true;
+        }
+
+        @Override
+        public boolean setDoneById(int userId, int id) {
+            return true;
+        }
+
+        @Override
+        public boolean deleteById(int userId, int id) {
+            return true;
+        }
+
+        @Override
+        public int setDoneByIds(int userId, Collection<Integer> ids) {
+            return ids.size();
+        }
+
+        @Override
+        public int deleteByIds(int userId, Collection<Integer> ids) {
+            return ids.size();
+        }
+
+        @Override
+        public int deleteDoneCreatedBefore(int userId, LocalDateTime before) {
+            return 0;
+        }
+
+        @Override
+        public UpdateResult update(Task task) {
+            return UpdateResult.UPDATED;
+        }
+
+        @Override
+        public boolean save(Task task) {
+            return true;
+        }
+
+        @Override
+        public boolean saveAll(Collection<Task> tasks) {
+            saved = tasks;
+            return true;
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package ru.job4j.todo.benchmark;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hibernate.SessionFactory;
+import org.hibernate.boot.MetadataSources;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+import org.openjdk.jmh.annotations.*;
+import ru.job4j.todo.dto.TaskRowDTO;
+import ru.job4j.todo.model.Task;
+import ru.job4j.todo.repository.CrudRepository;
+import ru.job4j.todo.repository.task.Store;
+import ru.job4j.todo.repository.task.TaskCursor;
+import ru.job4j.todo.repository.task.TaskFilter;
+import ru.job4j.todo.repository.task.TaskStore;
+import ru.job4j.todo.repository.task.UpdateResult;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Замеряет методы {@link TaskStore} на заполненной базе H2 в режиме PostgreSQL. Для каждого сочетания
+ * объема и числа категорий на задание создается своя база {@link BenchmarkDatabase}.
+ * Все задания принадлежат одному пользователю - худший случай для списков.
+ * Запуск: {@code mvn -Ptest,jmh test-compile exec:exec@jmh -Djmh.include=TaskStoreBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TaskStoreBenchmark {
+
+    private static final int PAGE_SIZE = 21;
+
+    @Param({"10000", "100000", "1000000"})
+    private int volume;
+
+    @Param({"3"})
+    private int categoriesPerTask;
+
+    private String url;
+    private SessionFactory sf;
+    private Store store;
+    private int userId;
+    private int minId;
+    private int maxId;
+    private TaskCursor middle;
+    private Task updated;
+    private int counter;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        url = BenchmarkDatabase.url(volume, categoriesPerTask);
+        try (Connection connection = DriverManager.getConnection(url)) {
+            BenchmarkDatabase.seed(connection, volume, categoriesPerTask);
+            try (var statement = connection.createStatement()) {
+                try (var rs = statement.executeQuery("SELECT MIN(id), MAX(id), MIN(user_id) FROM tasks")) {
+                    rs.next();
+                    minId = rs.getInt(1);
+                    maxId = rs.getInt(2);
+                    userId = rs.getInt(3);
+                }
+                try (var rs = statement.executeQuery("SELECT created, id FROM tasks ORDER BY created, id "
+                        + "OFFSET " + volume / 2 + " ROWS FETCH FIRST 1 ROWS ONLY")) {
+                    rs.next();
+                    middle = new TaskCursor(rs.getTimestamp(1).toLocalDateTime(), rs.getInt(2));
+                }
+            }
+        }
+        var registry = new StandardServiceRegistryBuilder().configure()
+                .applySetting(AvailableSettings.URL, url)
+                .applySetting(AvailableSettings.SHOW_SQL, false)
+                .build();
+        sf = new MetadataSources(registry).buildMetadata().buildSessionFactory();
+        store = new TaskStore(new CrudRepository(sf, new SimpleMeterRegistry()));
+        updated = store.findById(userId, minId).orElseThrow();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        sf.close();
+        try (Connection connection = DriverManager.getConnection(url);
+             var statement = connection.createStatement()) {
+            statement.executeUpdate("DELETE FROM task_categories WHERE task_id > " + maxId);
+            statement.executeUpdate("DELETE FROM tasks WHERE id > " + maxId);
+        }
+    }
+
+    private int randomId() {
+        return ThreadLocalRandom.current().nextInt(minId, maxId + 1);
+    }
+
+    @Benchmark
+    public List<TaskRowDTO> findAllFirstPage() {
+        return store.findAll(userId, TaskFilter.ALL, null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<TaskRowDTO> findAllMiddlePage() {
+        return store.findAll(userId, TaskFilter.ALL, middle, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<TaskRowDTO> findDoneFirstPage() {
+        return store.findAll(userId, TaskFilter.DONE, null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<TaskRowDTO> findNewFirstPage() {
+        return store.findAll(userId, TaskFilter.NEW, null, PAGE_SIZE);
+    }
+
+    /**
+     * Поиск по двум словам из названия: в H2 - полный просмотр заданий пользователя через LIKE
+     */
+    @Benchmark
+    public List<TaskRowDTO> searchFirstPage() {
+        return store.search(userId, "task 1", 0, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public Optional<Task> findById() {
+        return store.findById(userId, randomId());
+    }
+
+    /**
+     * Изменение только названия: UPDATE одного столбца с проверкой версии
+     */
+    @Benchmark
+    public UpdateResult update() {
+        updated.setTitle("updated " + counter++);
+        return store.update(updated);
+    }
+
+    @Benchmark
+    public boolean save() {
+        return store.save(new Task(0, "new", "new description", LocalDateTime.now(), false,
+                updated.getUser(), updated.getPriority(), new HashSet<>(updated.getCategories()), 0));
+    }
+}
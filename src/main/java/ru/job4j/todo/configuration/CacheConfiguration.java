@@ -0,0 +1,17 @@
+package ru.job4j.todo.configuration;
+
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Кэш справочников (приоритеты, категории). Размер и время жизни записей задаются
+ * свойством {@code spring.cache.caffeine.spec}, статистика попаданий публикуется
+ * в метриках {@code cache.gets}, сброс - через {@link ru.job4j.todo.repository.ReferenceDataCache}.
+ * Конечная точка actuator {@code caches} не публикуется: удалять кэши через веб нельзя.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfiguration {
+    public static final String PRIORITIES = "priorities";
+    public static final String CATEGORIES = "categories";
+}
@@ -1,18 +1,65 @@
 package ru.job4j.todo.configuration;
 
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import net.ttddyy.dsproxy.support.ProxyDataSourceBuilder;
 import org.hibernate.SessionFactory;
 import org.hibernate.boot.MetadataSources;
 import org.hibernate.boot.registry.StandardServiceRegistry;
 import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import ru.job4j.todo.repository.SlowQueryListener;
+import ru.job4j.todo.repository.StatementCountListener;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.List;
 
 @Configuration
 public class DatasourceConfiguration {
+
+    /**
+     * Настройки пула соединений из {@code todo.datasource.hikari.*}.
+     * Адрес БД, логин и пароль берутся из {@code hibernate.cfg.xml}.
+     */
+    @Bean
+    @ConfigurationProperties("todo.datasource.hikari")
+    public HikariConfig hikariConfig() {
+        return new HikariConfig();
+    }
+
+    @Bean(destroyMethod = "close")
+    public HikariDataSource dataSource(HikariConfig hikariConfig) {
+        var settings = new StandardServiceRegistryBuilder().configure().getSettings();
+        hikariConfig.setDriverClassName((String) settings.get(AvailableSettings.DRIVER));
+        hikariConfig.setJdbcUrl((String) settings.get(AvailableSettings.URL));
+        hikariConfig.setUsername((String) settings.get(AvailableSettings.USER));
+        hikariConfig.setPassword((String) settings.get(AvailableSettings.PASS));
+        return new HikariDataSource(hikariConfig);
+    }
+
+    /**
+     * Hibernate получает пул, обернутый datasource-proxy: запросы дольше
+     * {@code todo.datasource.slow-query-threshold} пишутся в лог {@link SlowQueryListener},
+     * {@link StatementCountListener} считает запросы для бюджета HTTP-запроса.
+     */
     @Bean(destroyMethod = "close")
-    public SessionFactory sf() {
-        final StandardServiceRegistry registry = new StandardServiceRegistryBuilder()
-                .configure().build();
+    public SessionFactory sf(DataSource dataSource,
+                             @Value("${todo.datasource.slow-query-threshold:200ms}") Duration slowQueryThreshold) {
+        final StandardServiceRegistryBuilder builder = new StandardServiceRegistryBuilder().configure();
+        builder.getSettings().keySet().removeAll(
+                List.of(AvailableSettings.DRIVER, AvailableSettings.URL, AvailableSettings.USER, AvailableSettings.PASS));
+        final StandardServiceRegistry registry = builder
+                .applySetting(AvailableSettings.DATASOURCE, ProxyDataSourceBuilder.create(dataSource)
+                        .name("todo")
+                        .listener(new SlowQueryListener(slowQueryThreshold))
+                        .listener(new StatementCountListener())
+                        .build())
+                .build();
         return new MetadataSources(registry).buildMetadata().buildSessionFactory();
     }
 }
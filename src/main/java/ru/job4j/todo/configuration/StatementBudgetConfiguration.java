@@ -0,0 +1,26 @@
+package ru.job4j.todo.configuration;
+
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import ru.job4j.todo.filter.StatementBudgetFilter;
+
+/**
+ * Подключает {@link StatementBudgetFilter} еще и как перехватчик MVC: в режиме
+ * {@code todo.statement-budget.fail-on-exceed} превышение бюджета обнаруживается
+ * до отправки ответа.
+ */
+@Configuration
+public class StatementBudgetConfiguration implements WebMvcConfigurer {
+
+    private final StatementBudgetFilter statementBudgetFilter;
+
+    public StatementBudgetConfiguration(StatementBudgetFilter statementBudgetFilter) {
+        this.statementBudgetFilter = statementBudgetFilter;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(statementBudgetFilter);
+    }
+}
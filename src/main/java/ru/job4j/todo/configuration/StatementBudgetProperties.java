@@ -0,0 +1,27 @@
+package ru.job4j.todo.configuration;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Бюджеты SQL-запросов на HTTP-запрос из {@code todo.statement-budget.*}.
+ * Ключ {@code endpoints} - шаблон адреса обработчика, например {@code [/task/{id}]};
+ * бюджет 0 и меньше снимает ограничение. Адреса без своего бюджета получают {@code default-budget}.
+ */
+@Data
+@Component
+@ConfigurationProperties("todo.statement-budget")
+public class StatementBudgetProperties {
+    private boolean enabled = true;
+    private boolean failOnExceed;
+    private int defaultBudget = 10;
+    private Map<String, Integer> endpoints = new HashMap<>();
+
+    public int budget(String endpoint) {
+        return endpoints.getOrDefault(endpoint, defaultBudget);
+    }
+}
@@ -0,0 +1,81 @@
+package ru.job4j.todo.configuration;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+import org.springframework.web.servlet.config.annotation.AsyncSupportConfigurer;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Режим виртуальных потоков, включается свойством {@code todo.virtual-threads.enabled=true}.
+ * Запросы Tomcat и асинхронные ответы MVC (выгрузка заданий) выполняются на виртуальных потоках,
+ * поэтому ожидание JDBC в {@link ru.job4j.todo.repository.CrudRepository} не занимает поток платформы.
+ * Число одновременных обращений к базе по-прежнему ограничено пулом соединений
+ * {@code todo.datasource.hikari.maximum-pool-size}: остальные запросы ждут соединение
+ * не дольше {@code connection-timeout}.
+ * Проект собирается под Java 19, где виртуальные потоки - preview, поэтому исполнитель
+ * создается через reflection: на Java 21 режим работает без флагов, на Java 19 нужен
+ * {@code --enable-preview}, иначе приложение не запустится. Тесты и бенчмарки обращаются
+ * к виртуальным потокам только через статические методы этого класса.
+ * Исполнитель - бин контекста и закрывается вместе с ним.
+ */
+@Configuration
+@ConditionalOnProperty(name = "todo.virtual-threads.enabled", havingValue = "true")
+public class VirtualThreadConfiguration implements WebMvcConfigurer {
+
+    @Bean(destroyMethod = "close")
+    public ExecutorService virtualThreadExecutor() {
+        return newVirtualThreadPerTaskExecutor();
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer() {
+        var executor = virtualThreadExecutor();
+        return protocolHandler -> protocolHandler.setExecutor(executor);
+    }
+
+    @Override
+    public void configureAsyncSupport(AsyncSupportConfigurer configurer) {
+        configurer.setTaskExecutor(new TaskExecutorAdapter(virtualThreadExecutor()));
+    }
+
+    /**
+     * Исполнитель, запускающий каждую задачу в новом виртуальном потоке.
+     */
+    public static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Виртуальные потоки недоступны в этой версии Java "
+                    + "(нужна Java 21 или Java 19 с --enable-preview)", e);
+        }
+    }
+
+    /**
+     * Является ли поток виртуальным; на версиях Java без виртуальных потоков - всегда {@code false}.
+     */
+    public static boolean isVirtual(Thread thread) {
+        try {
+            return (boolean) Thread.class.getMethod("isVirtual").invoke(thread);
+        } catch (ReflectiveOperationException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Можно ли создать исполнитель виртуальных потоков в текущей JVM.
+     */
+    public static boolean available() {
+        try {
+            newVirtualThreadPerTaskExecutor().shutdown();
+            return true;
+        } catch (IllegalStateException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package ru.job4j.todo.controller;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.*;
+import ru.job4j.todo.dto.StatisticsDTO;
+import ru.job4j.todo.service.statistics.StatisticsService;
+
+/**
+ * Служебные данные для поиска горячих запросов. Ролей в приложении нет, а регистрация открыта,
+ * поэтому адрес включается только свойством {@code todo.admin.enabled=true} - на время
+ * диагностики. Данные только читаются: сбросить статистику Hibernate через веб нельзя.
+ */
+@Controller
+@RequestMapping("/admin")
+@ConditionalOnProperty(name = "todo.admin.enabled", havingValue = "true")
+public class AdminController {
+
+    private final StatisticsService statisticsService;
+
+    public AdminController(StatisticsService statisticsService) {
+        this.statisticsService = statisticsService;
+    }
+
+    @GetMapping("/statistics")
+    @ResponseBody
+    public StatisticsDTO getStatistics() {
+        return statisticsService.getStatistics();
+    }
+}
@@ -1,15 +1,25 @@
 package ru.job4j.todo.controller;
 
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.util.UriComponentsBuilder;
+import org.springframework.web.servlet.mvc.support.RedirectAttributes;
+import ru.job4j.todo.dto.PageDTO;
 import ru.job4j.todo.dto.TaskDTO;
+import ru.job4j.todo.dto.TaskFilterDTO;
 import ru.job4j.todo.model.User;
+import ru.job4j.todo.repository.task.UpdateResult;
 import ru.job4j.todo.service.category.CategoryService;
 import ru.job4j.todo.service.priority.PriorityService;
 import ru.job4j.todo.service.task.TaskService;
 
 import java.time.LocalDateTime;
+import java.util.List;
 import java.util.Optional;
 
 @Controller
@@ -27,25 +37,93 @@ public class TaskController {
     }
 
     @GetMapping
-    public String getAll(Model model, @SessionAttribute(name = "user") User user) {
-        model.addAttribute("tasks", taskService.findAll(user));
+    public String getAll(Model model, @SessionAttribute(name = "user") User user,
+                         @ModelAttribute("filter") TaskFilterDTO filter,
+                         @RequestParam(name = "after", required = false) String after,
+                         ServletWebRequest request) {
+        if (isNotModified(request, model, user)) {
+            return null;
+        }
+        addPage(model, taskService.findAll(user, filter, after), request);
+        addReferenceData(model);
         return "list";
     }
 
     @GetMapping("/done")
-    public String getDone(Model model, @SessionAttribute(name = "user") User user) {
-        model.addAttribute("tasks", taskService.findDone(user));
+    public String getDone(Model model, @SessionAttribute(name = "user") User user,
+                          @ModelAttribute("filter") TaskFilterDTO filter,
+                          @RequestParam(name = "after", required = false) String after,
+                          ServletWebRequest request) {
+        if (isNotModified(request, model, user)) {
+            return null;
+        }
+        addPage(model, taskService.findDone(user, filter, after), request);
+        addReferenceData(model);
         model.addAttribute("mode", "listDone");
         return "list";
     }
 
     @GetMapping("/new")
-    public String getNew(Model model, @SessionAttribute(name = "user") User user) {
-        model.addAttribute("tasks", taskService.findNew(user));
+    public String getNew(Model model, @SessionAttribute(name = "user") User user,
+                         @ModelAttribute("filter") TaskFilterDTO filter,
+                         @RequestParam(name = "after", required = false) String after,
+                         ServletWebRequest request) {
+        if (isNotModified(request, model, user)) {
+            return null;
+        }
+        addPage(model, taskService.findNew(user, filter, after), request);
+        addReferenceData(model);
         model.addAttribute("mode", "listNew");
         return "list";
     }
 
+    @GetMapping("/search")
+    public String search(Model model, @SessionAttribute(name = "user") User user,
+                         @RequestParam(name = "q", defaultValue = "") String query,
+                         @RequestParam(name = "after", required = false) String after,
+                         ServletWebRequest request) {
+        if (isNotModified(request, model, user)) {
+            return null;
+        }
+        addPage(model, taskService.search(user, query, after), request);
+        model.addAttribute("query", query);
+        model.addAttribute("mode", "search");
+        return "list";
+    }
+
+    /**
+     * Отвечает 304, если браузер прислал ETag с текущей версией данных пользователя: страница
+     * не строится и база не опрашивается. Страницы с flash-сообщением после записи
+     * всегда отрисовываются заново.
+     */
+    private boolean isNotModified(ServletWebRequest request, Model model, User user) {
+        if (model.containsAttribute("message")) {
+            return false;
+        }
+        request.getResponse().setHeader(HttpHeaders.CACHE_CONTROL, CacheControl.noCache().cachePrivate().getHeaderValue());
+        return request.checkNotModified(taskService.getVersion(user));
+    }
+
+    /**
+     * Ссылки на первую и следующую страницы сохраняют остальные параметры запроса (фильтр, поиск)
+     */
+    private void addPage(Model model, PageDTO<TaskDTO> page, ServletWebRequest request) {
+        var servletRequest = request.getRequest();
+        var uri = UriComponentsBuilder.fromPath(servletRequest.getRequestURI())
+                .query(servletRequest.getQueryString());
+        model.addAttribute("tasks", page.items());
+        model.addAttribute("nextCursor", page.nextCursor());
+        model.addAttribute("firstUrl", uri.replaceQueryParam("after").build().toUriString());
+        if (page.nextCursor() != null) {
+            model.addAttribute("nextUrl", uri.replaceQueryParam("after", page.nextCursor()).build().toUriString());
+        }
+    }
+
+    private void addReferenceData(Model model) {
+        model.addAttribute("priorities", priorityService.findAll());
+        model.addAttribute("categories", categoryService.findAll());
+    }
+
     @GetMapping("/add")
     public String addTask(Model model, @SessionAttribute(name = "user") User user) {
         TaskDTO taskDTO = new TaskDTO();
@@ -59,7 +137,11 @@ public class TaskController {
     }
 
     @GetMapping("/task/{id}")
-    public String getTask(Model model, @PathVariable int id, @SessionAttribute(name = "user") User user) {
+    public String getTask(Model model, @PathVariable int id, @SessionAttribute(name = "user") User user,
+                          ServletWebRequest request) {
+        if (isNotModified(request, model, user)) {
+            return null;
+        }
         var optionalTaskDTO = taskService.findById(id, user);
         if (optionalTaskDTO.isEmpty()) {
             model.addAttribute("message", "Не удалось найти задание");
@@ -73,8 +155,8 @@ public class TaskController {
     }
 
     @GetMapping("/task/setDone/{id}")
-    public String doTask(Model model, @PathVariable int id) {
-        if (!taskService.setDoneById(id)) {
+    public String doTask(Model model, @PathVariable int id, @SessionAttribute(name = "user") User user) {
+        if (!taskService.setDoneById(id, user)) {
             model.addAttribute("message", "Не удалось установить задание как выполненное");
             return "errors/404";
         }
@@ -96,33 +178,64 @@ public class TaskController {
     }
 
     @GetMapping("/task/delete/{id}")
-    public String deleteTask(Model model, @PathVariable int id) {
-        if (!taskService.deleteById(id)) {
+    public String deleteTask(Model model, @PathVariable int id, @SessionAttribute(name = "user") User user) {
+        if (!taskService.deleteById(id, user)) {
             model.addAttribute("message", "Не удалось удалить задание");
             return "errors/404";
         }
         return "redirect:/";
     }
 
+    @PostMapping("/tasks/setDone")
+    public String doTasks(@RequestParam(name = "ids", required = false) List<Integer> ids,
+                          @SessionAttribute(name = "user") User user, RedirectAttributes redirectAttributes) {
+        var count = taskService.setDoneByIds(ids != null ? ids : List.of(), user);
+        redirectAttributes.addFlashAttribute("message", "Выполнено заданий: " + count);
+        return "redirect:/";
+    }
+
+    @PostMapping("/tasks/delete")
+    public String deleteTasks(@RequestParam(name = "ids", required = false) List<Integer> ids,
+                              @SessionAttribute(name = "user") User user, RedirectAttributes redirectAttributes) {
+        var count = taskService.deleteByIds(ids != null ? ids : List.of(), user);
+        redirectAttributes.addFlashAttribute("message", "Удалено заданий: " + count);
+        return "redirect:/";
+    }
+
+    @PostMapping("/tasks/deleteDone")
+    public String deleteDoneTasks(@RequestParam(name = "before")
+                                  @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime before,
+                                  @SessionAttribute(name = "user") User user, RedirectAttributes redirectAttributes) {
+        var count = taskService.deleteDoneCreatedBefore(before, user);
+        redirectAttributes.addFlashAttribute("message", "Удалено выполненных заданий: " + count);
+        return "redirect:/";
+    }
+
     @PostMapping("/task/update")
-    public String saveOrUpdate(@ModelAttribute TaskDTO task, @RequestParam("mode") String mode, Model model) {
+    public String saveOrUpdate(@ModelAttribute TaskDTO task, @RequestParam("mode") String mode, Model model,
+                               @SessionAttribute(name = "user") User user) {
         if ("taskNew".equals(mode)) {
             task.setCreated(LocalDateTime.now());
-            return save(task, model);
+            return save(task, user, model);
         }
-        return update(task, model);
+        return update(task, user, model);
     }
 
-    private String save(TaskDTO task, Model model) {
-        if (!taskService.save(task)) {
+    private String save(TaskDTO task, User user, Model model) {
+        if (!taskService.save(task, user)) {
             model.addAttribute("message", "Не удалось сохранить задание");
             return "errors/404";
         }
         return "redirect:/";
     }
 
-    private String update(TaskDTO task, Model model) {
-        if (!taskService.update(task)) {
+    private String update(TaskDTO task, User user, Model model) {
+        var result = taskService.update(task, user);
+        if (result == UpdateResult.CONFLICT) {
+            model.addAttribute("message", "Задание уже изменено в другом окне, откройте его заново");
+            return "errors/404";
+        }
+        if (!result.isUpdated()) {
             model.addAttribute("message", "Не удалось обновить задание");
             return "errors/404";
         }
@@ -0,0 +1,64 @@
+package ru.job4j.todo.controller;
+
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.util.StringUtils;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.job4j.todo.dto.TaskImportResultDTO;
+import ru.job4j.todo.model.User;
+import ru.job4j.todo.service.transfer.TaskExportService;
+import ru.job4j.todo.service.transfer.TaskFileFormat;
+import ru.job4j.todo.service.transfer.TaskImportService;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+@Controller
+@RequestMapping("/tasks")
+public class TaskTransferController {
+
+    private final TaskExportService taskExportService;
+    private final TaskImportService taskImportService;
+
+    public TaskTransferController(TaskExportService taskExportService, TaskImportService taskImportService) {
+        this.taskExportService = taskExportService;
+        this.taskImportService = taskImportService;
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(@SessionAttribute(name = "user") User user,
+                                                        @RequestParam(name = "format", defaultValue = "csv")
+                                                        String format) {
+        var fileFormat = TaskFileFormat.of(format);
+        if (fileFormat.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        StreamingResponseBody body = out -> taskExportService.export(user, fileFormat.get(), out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(fileFormat.get().getContentType() + ";charset=UTF-8"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("tasks." + fileFormat.get().getExtension()).build().toString())
+                .body(body);
+    }
+
+    @PostMapping("/import")
+    @ResponseBody
+    public ResponseEntity<TaskImportResultDTO> importTasks(@SessionAttribute(name = "user") User user,
+                                                           @RequestParam(name = "file") MultipartFile file,
+                                                           @RequestParam(name = "format", required = false)
+                                                           String format) throws IOException {
+        var fileFormat = TaskFileFormat.of(format != null ? format
+                : StringUtils.getFilenameExtension(file.getOriginalFilename()));
+        if (fileFormat.isEmpty()) {
+            return ResponseEntity.badRequest().build();
+        }
+        try (InputStream in = file.getInputStream()) {
+            return ResponseEntity.ok(taskImportService.importTasks(user, fileFormat.get(), in));
+        }
+    }
+}
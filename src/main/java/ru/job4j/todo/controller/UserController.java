@@ -1,50 +1,53 @@
 package ru.job4j.todo.controller;
 
+import org.springframework.http.CacheControl;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
-import org.springframework.web.bind.annotation.GetMapping;
-import org.springframework.web.bind.annotation.ModelAttribute;
-import org.springframework.web.bind.annotation.PostMapping;
-import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.*;
 import ru.job4j.todo.dto.TimeZoneDTO;
 import ru.job4j.todo.model.User;
+import ru.job4j.todo.service.timezone.TimeZoneService;
 import ru.job4j.todo.service.user.UserService;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpSession;
-import java.time.ZoneId;
-import java.time.ZonedDateTime;
-import java.util.Comparator;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
-import java.util.TimeZone;
 
 @Controller
 @RequestMapping("/users")
 public class UserController {
 
     private final UserService userService;
+    private final TimeZoneService timeZoneService;
 
-    public UserController(UserService userService) {
+    public UserController(UserService userService, TimeZoneService timeZoneService) {
         this.userService = userService;
+        this.timeZoneService = timeZoneService;
     }
 
     @GetMapping("/register")
     public String getRegistrationPage(Model model, HttpSession session) {
         var user = (User) session.getAttribute("user");
         model.addAttribute("user", user);
-        model.addAttribute("timeZones", getTimeZones());
         return "users/register";
     }
 
-    private List<TimeZoneDTO> getTimeZones() {
-        return ZoneId.getAvailableZoneIds().stream()
-                .map(id -> {
-                    ZoneId zoneId = ZoneId.of(id);
-                    return new TimeZoneDTO(id, id + " : (UTC " + ZonedDateTime.now(zoneId).getOffset().getId() + ") "
-                            + TimeZone.getTimeZone(zoneId).getDisplayName());
-                })
-                .sorted(Comparator.comparing(TimeZoneDTO::id))
-                .toList();
+    /**
+     * Список часовых поясов для страницы регистрации. Браузер хранит ответ до ближайшего
+     * перехода смещения в каком-либо поясе, а затем перепроверяет его по ETag.
+     */
+    @GetMapping("/timezones")
+    @ResponseBody
+    public ResponseEntity<List<TimeZoneDTO>> getTimeZones() {
+        var catalog = timeZoneService.getCatalog();
+        var maxAge = Duration.between(Instant.now(), catalog.expires());
+        return ResponseEntity.ok()
+                .eTag(catalog.version())
+                .cacheControl(CacheControl.maxAge(maxAge.isNegative() ? Duration.ZERO : maxAge).cachePublic())
+                .body(catalog.zones());
     }
 
     @PostMapping("/register")
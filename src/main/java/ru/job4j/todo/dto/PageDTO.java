@@ -0,0 +1,6 @@
+package ru.job4j.todo.dto;
+
+import java.util.List;
+
+public record PageDTO<T>(List<T> items, String nextCursor) {
+}
@@ -0,0 +1,39 @@
+package ru.job4j.todo.dto;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Статистика Hibernate с момента запуска приложения {@code since} и статистика
+ * кэшей справочников. В {@code queries} - самые затратные запросы по суммарному времени.
+ */
+public record StatisticsDTO(Instant since,
+                            long sessions,
+                            long transactions,
+                            long preparedStatements,
+                            long queries,
+                            long queryMaxMillis,
+                            String slowestQuery,
+                            long entityLoads,
+                            long entityFetches,
+                            long entityInserts,
+                            long entityUpdates,
+                            long entityDeletes,
+                            long collectionLoads,
+                            long collectionFetches,
+                            CacheRatio secondLevelCache,
+                            CacheRatio queryCache,
+                            Map<String, CacheRatio> caches,
+                            List<Query> topQueries) {
+
+    public record CacheRatio(long hits, long misses, double hitRatio) {
+        public static CacheRatio of(long hits, long misses) {
+            return new CacheRatio(hits, misses, hits + misses == 0 ? 0 : (double) hits / (hits + misses));
+        }
+    }
+
+    public record Query(String query, long executions, long rows, double averageMillis, long maxMillis,
+                        long totalMillis) {
+    }
+}
@@ -22,4 +22,5 @@ public class TaskDTO {
     private String priority;
     private List<Integer> categoriesId;
     private String categoriesName;
+    private int version;
 }
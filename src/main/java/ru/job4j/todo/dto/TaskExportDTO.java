@@ -0,0 +1,8 @@
+package ru.job4j.todo.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public record TaskExportDTO(int id, String title, String description, LocalDateTime created, boolean done,
+                            String priority, List<String> categories) {
+}
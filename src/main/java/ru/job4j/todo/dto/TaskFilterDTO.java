@@ -0,0 +1,27 @@
+package ru.job4j.todo.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+
+import java.time.LocalDate;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Параметры отбора списка заданий из строки запроса. Даты - в часовом поясе пользователя,
+ * обе границы включительно.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class TaskFilterDTO {
+    private Set<Integer> priority = new HashSet<>();
+    private Set<Integer> category = new HashSet<>();
+    private boolean allCategories;
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate from;
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate to;
+}
@@ -0,0 +1,13 @@
+package ru.job4j.todo.dto;
+
+import java.util.List;
+
+public record TaskImportResultDTO(int imported, int failed, long millis, double rowsPerSecond,
+                                  List<Batch> batches, List<Error> errors) {
+
+    public record Batch(int number, int rows, boolean saved, int imported) {
+    }
+
+    public record Error(long row, String message) {
+    }
+}
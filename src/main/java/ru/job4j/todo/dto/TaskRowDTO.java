@@ -0,0 +1,7 @@
+package ru.job4j.todo.dto;
+
+import java.time.LocalDateTime;
+
+public record TaskRowDTO(int id, String title, LocalDateTime created, boolean done, int priorityId,
+                         String priority, String categories) {
+}
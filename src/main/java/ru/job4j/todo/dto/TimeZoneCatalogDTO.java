@@ -0,0 +1,11 @@
+package ru.job4j.todo.dto;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Список часовых поясов с версией содержимого (для ETag) и моментом,
+ * до которого смещения поясов в названиях остаются верными.
+ */
+public record TimeZoneCatalogDTO(List<TimeZoneDTO> zones, String version, Instant expires) {
+}
@@ -32,6 +32,7 @@ public class AuthorizationFilter extends HttpFilter {
 
     private boolean isAlwaysPermitted(String uri) {
         return uri.startsWith("/users/register")
-                || uri.startsWith("/users/login");
+                || uri.startsWith("/users/login")
+                || uri.startsWith("/users/timezones");
     }
 }
\ No newline at end of file
@@ -0,0 +1,129 @@
+package ru.job4j.todo.filter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+import org.springframework.web.servlet.ModelAndView;
+import ru.job4j.todo.configuration.StatementBudgetProperties;
+import ru.job4j.todo.repository.RequestStatements;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpFilter;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Считает SQL-запросы и строки каждого HTTP-запроса и сверяет число запросов с бюджетом адреса
+ * из {@link StatementBudgetProperties}. Превышение пишется в лог, а с
+ * {@code todo.statement-budget.fail-on-exceed=true} (так запускаются тесты) - завершает запрос
+ * исключением. Счетчики попадают в метрики {@code todo.request.statements}, {@code todo.request.rows}
+ * и {@code todo.request.statement-budget.exceeded} с тегом {@code uri} - шаблоном адреса обработчика.
+ * После фильтра ответ может быть уже отправлен, поэтому в режиме {@code fail-on-exceed} бюджет
+ * проверяется и как {@link HandlerInterceptor} - после обработчика, до отрисовки представления,
+ * и исключение превращается в ответ с ошибкой. Запросы, выполненные при отрисовке или записи
+ * тела после отправки ответа, проверяются только фильтром и при превышении попадают в лог.
+ */
+@Slf4j
+@Component
+@Order(0)
+public class StatementBudgetFilter extends HttpFilter implements HandlerInterceptor {
+
+    private static final String UNMATCHED = "UNMATCHED";
+
+    private final StatementBudgetProperties properties;
+    private final MeterRegistry registry;
+
+    public StatementBudgetFilter(StatementBudgetProperties properties, MeterRegistry registry) {
+        this.properties = properties;
+        this.registry = registry;
+    }
+
+    @Override
+    protected void doFilter(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws IOException, ServletException {
+        if (!properties.isEnabled()) {
+            chain.doFilter(request, response);
+            return;
+        }
+        var counters = RequestStatements.begin();
+        String exceeded;
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            counters.close();
+            exceeded = record(request, counters);
+        }
+        if (exceeded == null) {
+            return;
+        }
+        if (properties.isFailOnExceed() && !response.isCommitted()) {
+            throw new IllegalStateException(exceeded);
+        }
+        log.warn(exceeded);
+    }
+
+    @Override
+    public void postHandle(HttpServletRequest request, HttpServletResponse response, Object handler,
+                           ModelAndView modelAndView) {
+        if (!properties.isEnabled() || !properties.isFailOnExceed()) {
+            return;
+        }
+        RequestStatements.current().ifPresent(counters -> {
+            var exceeded = exceeded(request, counters);
+            if (exceeded != null) {
+                throw new IllegalStateException(exceeded);
+            }
+        });
+    }
+
+    /**
+     * Шаблон адреса обработчика - ключ бюджета и тег метрик. Корневой адрес контроллера
+     * без пути Spring сопоставляет пустому шаблону, он приводится к {@code /}.
+     */
+    static String endpoint(HttpServletRequest request) {
+        var pattern = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        if (pattern == null) {
+            return UNMATCHED;
+        }
+        return pattern.toString().isEmpty() ? "/" : pattern.toString();
+    }
+
+    /**
+     * Записывает метрики запроса и возвращает сообщение о превышении бюджета или {@code null}.
+     */
+    private String record(HttpServletRequest request, RequestStatements counters) {
+        var uri = endpoint(request);
+        DistributionSummary.builder("todo.request.statements")
+                .description("Число SQL-запросов за HTTP-запрос")
+                .tag("uri", uri)
+                .register(registry).record(counters.statements());
+        DistributionSummary.builder("todo.request.rows")
+                .description("Число строк, прочитанных или измененных за HTTP-запрос")
+                .tag("uri", uri)
+                .register(registry).record(counters.rows());
+        var exceeded = exceeded(request, counters);
+        if (exceeded != null) {
+            Counter.builder("todo.request.statement-budget.exceeded")
+                    .description("Число HTTP-запросов, превысивших бюджет SQL-запросов")
+                    .tag("uri", uri)
+                    .register(registry).increment();
+        }
+        return exceeded;
+    }
+
+    private String exceeded(HttpServletRequest request, RequestStatements counters) {
+        var uri = endpoint(request);
+        var budget = properties.budget(uri);
+        if (budget <= 0 || counters.statements() <= budget) {
+            return null;
+        }
+        return String.format("Превышен бюджет SQL-запросов: %s %s (%s) - %d запросов при бюджете %d, строк %d",
+                request.getMethod(), request.getRequestURI(), uri, counters.statements(), budget, counters.rows());
+    }
+}
@@ -0,0 +1,50 @@
+package ru.job4j.todo.filter;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.SessionFactory;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import ru.job4j.todo.repository.UnitOfWork;
+
+import javax.servlet.FilterChain;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpFilter;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Оборачивает GET-запрос в {@link UnitOfWork}: все чтения страницы (задание, приоритеты, категории)
+ * выполняются в одной сессии на одном соединении. Число соединений, взятых из пула за запрос,
+ * пишется в метрику {@code todo.request.connections}.
+ */
+@Component
+@Order(3)
+public class UnitOfWorkFilter extends HttpFilter {
+
+    private final SessionFactory sf;
+    private final DistributionSummary connections;
+
+    public UnitOfWorkFilter(SessionFactory sf, MeterRegistry registry) {
+        this.sf = sf;
+        this.connections = DistributionSummary.builder("todo.request.connections")
+                .description("Число соединений, взятых из пула за GET-запрос")
+                .register(registry);
+    }
+
+    @Override
+    protected void doFilter(HttpServletRequest request, HttpServletResponse response, FilterChain chain) throws IOException, ServletException {
+        if (!"GET".equals(request.getMethod())) {
+            chain.doFilter(request, response);
+            return;
+        }
+        var unitOfWork = UnitOfWork.begin(sf);
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            unitOfWork.close();
+            connections.record(unitOfWork.connections());
+        }
+    }
+}
@@ -1,26 +1,42 @@
 package ru.job4j.todo.model;
 
 import lombok.*;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.DynamicUpdate;
 
 import javax.persistence.*;
 import java.time.LocalDateTime;
-import java.util.List;
+import java.util.Set;
 
+/**
+ * Планы загрузки задания по сценариям, их применяет {@code TaskStore}:
+ * {@link #DETAIL_GRAPH} - просмотр и форма редактирования (автор, приоритет и категории одним запросом),
+ * {@link #UPDATE_GRAPH} - обновление (категории для сравнения с новыми).
+ * Строки списка и выгрузка читаются проекцией столбцов и сущностей не создают.
+ */
 @Getter
 @Setter
 @NoArgsConstructor
 @AllArgsConstructor
 @Entity
+@DynamicUpdate
 @Table(name = "tasks")
+@NamedEntityGraph(name = Task.DETAIL_GRAPH, attributeNodes = {
+        @NamedAttributeNode("user"), @NamedAttributeNode("priority"), @NamedAttributeNode("categories")})
+@NamedEntityGraph(name = Task.UPDATE_GRAPH, attributeNodes = @NamedAttributeNode("categories"))
 public class Task {
+    public static final String DETAIL_GRAPH = "Task.detail";
+    public static final String UPDATE_GRAPH = "Task.update";
+
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "tasks_id_seq")
+    @SequenceGenerator(name = "tasks_id_seq", sequenceName = "tasks_id_seq", allocationSize = 50)
     private int id;
     private String title;
     private String description;
     private LocalDateTime created = LocalDateTime.now();
     private boolean done;
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "user_id")
     private User user;
 
@@ -29,10 +45,14 @@ public class Task {
     private Priority priority;
 
     @ManyToMany
+    @BatchSize(size = 50)
     @JoinTable(
             name = "task_categories",
             joinColumns = { @JoinColumn(name = "task_id") },
             inverseJoinColumns = { @JoinColumn(name = "category_id") }
     )
-    private List<Category> categories;
+    private Set<Category> categories;
+
+    @Version
+    private int version;
 }
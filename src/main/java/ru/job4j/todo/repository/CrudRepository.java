@@ -1,21 +1,40 @@
 package ru.job4j.todo.repository;
 
-import lombok.AllArgsConstructor;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.hibernate.FlushMode;
+import org.hibernate.ScrollMode;
+import org.hibernate.ScrollableResults;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.hibernate.Transaction;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.function.Consumer;
 import java.util.function.Function;
 
-@AllArgsConstructor
+/**
+ * Выполняет команды Hibernate, каждую в своей сессии и транзакции.
+ * Методы {@code run}, {@code tx}, {@code updateQuery} и {@code executeUpdate} открывают транзакцию на запись,
+ * методы {@code query}, {@code nativeQuery}, {@code optional} и {@code scroll} - транзакцию только
+ * на чтение: загруженные сущности не получают снимков для dirty checking, сессия не сбрасывается
+ * при фиксации, а JDBC-соединение помечается как read-only.
+ * Если в потоке открыта {@link UnitOfWork}, чтения идут в ее общей сессии и транзакции.
+ */
 @Repository
 public class CrudRepository {
     private final SessionFactory sf;
+    private final RepositoryMetrics metrics;
+
+    public CrudRepository(SessionFactory sf, MeterRegistry registry) {
+        this.sf = sf;
+        this.metrics = new RepositoryMetrics(registry);
+    }
 
     public void run(Consumer<Session> command) {
         tx(session -> {
@@ -34,11 +53,15 @@ public class CrudRepository {
             }
             return sq.uniqueResultOptional();
         };
-        return tx(command);
+        return readOnlyTx(command);
     }
 
     public <T> Optional<T> optional(Function<Session, T> command) {
-        return Optional.ofNullable(tx(command));
+        return Optional.ofNullable(readOnlyTx(command));
+    }
+
+    public <T> List<T> query(Function<Session, List<T>> command) {
+        return readOnlyTx(command);
     }
 
     public <T> List<T> query(String query, Class<T> cl) {
@@ -53,31 +76,160 @@ public class CrudRepository {
             }
             return sq.list();
         };
-        return tx(command);
+        return readOnlyTx(command);
+    }
+
+    public <T> List<T> query(String query, Class<T> cl, Map<String, Object> args, int limit) {
+        Function<Session, List<T>> command = session -> {
+            var sq = session.createQuery(query, cl);
+            for (Map.Entry<String, Object> arg : args.entrySet()) {
+                sq.setParameter(arg.getKey(), arg.getValue());
+            }
+            return sq.setMaxResults(limit).list();
+        };
+        return readOnlyTx(command);
+    }
+
+    /**
+     * Выполняет SQL-запрос и возвращает строки как массивы скалярных значений:
+     * сущности не создаются и в контекст персистентности не попадают.
+     */
+    public List<Object[]> nativeQuery(String query, Map<String, Object> args, int limit) {
+        return nativeQuery(query, args, 0, limit);
+    }
+
+    @SuppressWarnings("unchecked")
+    public List<Object[]> nativeQuery(String query, Map<String, Object> args, int offset, int limit) {
+        Function<Session, List<Object[]>> command = session -> {
+            var sq = session.createNativeQuery(query);
+            for (Map.Entry<String, Object> arg : args.entrySet()) {
+                if (arg.getValue() instanceof Collection<?> values) {
+                    sq.setParameterList(arg.getKey(), values);
+                } else {
+                    sq.setParameter(arg.getKey(), arg.getValue());
+                }
+            }
+            return sq.setFirstResult(offset).setMaxResults(limit).list();
+        };
+        return readOnlyTx(command);
+    }
+
+    /**
+     * Диалект базы данных - для запросов, которые пишутся по-разному для PostgreSQL и H2.
+     */
+    public Dialect dialect() {
+        return sf.unwrap(SessionFactoryImplementor.class).getJdbcServices().getDialect();
+    }
+
+    /**
+     * Построчно передает результат запроса потребителю, не загружая его целиком: курсор читается
+     * порциями по {@code fetchSize} строк, после каждой порции контекст персистентности очищается.
+     * Поэтому всегда выполняется в своей сессии, даже внутри {@link UnitOfWork}.
+     */
+    public void scroll(String query, Map<String, Object> args, int fetchSize, Consumer<Object[]> consumer) {
+        tx(session -> {
+            var sq = session.createQuery(query, Object[].class);
+            for (Map.Entry<String, Object> arg : args.entrySet()) {
+                sq.setParameter(arg.getKey(), arg.getValue());
+            }
+            var count = 0;
+            try (ScrollableResults results = sq.setFetchSize(fetchSize).scroll(ScrollMode.FORWARD_ONLY)) {
+                while (results.next()) {
+                    consumer.accept(results.get());
+                    if (++count % fetchSize == 0) {
+                        session.clear();
+                    }
+                }
+            }
+            return count;
+        }, true);
     }
 
     public boolean updateQuery(String query, Map<String, Object> args) {
+        return executeUpdate(query, args) > 0;
+    }
+
+    public int executeUpdate(String query, Map<String, Object> args) {
         return tx(session -> {
             var sq = session.createQuery(query);
             for (Map.Entry<String, Object> arg : args.entrySet()) {
                 sq.setParameter(arg.getKey(), arg.getValue());
             }
-            return sq.executeUpdate() > 0;
+            return sq.executeUpdate();
         });
     }
 
-    private <T> T tx(Function<Session, T> command) {
+    /**
+     * Выполняет команду в транзакции на запись и возвращает ее результат.
+     */
+    public <T> T tx(Function<Session, T> command) {
+        return tx(command, false);
+    }
+
+    private <T> T readOnlyTx(Function<Session, T> command) {
+        var unitOfWork = UnitOfWork.current(sf);
+        return unitOfWork.isPresent() ? shared(command, unitOfWork.get()) : tx(command, true);
+    }
+
+    /**
+     * Чтение в общей сессии единицы работы: без своей транзакции и соединения,
+     * после ошибки общая сессия закрывается.
+     */
+    private <T> T shared(Function<Session, T> command, UnitOfWork unitOfWork) {
+        var method = RepositoryCaller.find();
+        var sample = metrics.start();
+        var success = false;
+        try {
+            T rsl = command.apply(unitOfWork.session());
+            success = true;
+            RequestStatements.rows(metrics.rows(method, rsl));
+            return rsl;
+        } catch (Exception e) {
+            unitOfWork.discard();
+            throw e;
+        } finally {
+            metrics.query(sample, method, true, success);
+        }
+    }
+
+    /**
+     * Единая точка измерения: время команды с транзакцией, исход транзакции, число строк,
+     * время открытия сессии и сброса изменений, с тегом вызвавшего метода репозитория.
+     * Изменения сбрасываются один раз до фиксации, при фиксации сессия повторно не сбрасывается.
+     */
+    private <T> T tx(Function<Session, T> command, boolean readOnly) {
+        var method = RepositoryCaller.find();
+        var sample = metrics.start();
+        var success = false;
+        UnitOfWork.current(sf).ifPresent(unitOfWork -> unitOfWork.separate(readOnly));
         Transaction transaction = null;
+        var openSample = metrics.start();
         try (Session session = sf.openSession()) {
+            metrics.session(RepositoryMetrics.SESSION_OPEN, openSample, method);
+            if (readOnly) {
+                session.setDefaultReadOnly(true);
+                session.setHibernateFlushMode(FlushMode.MANUAL);
+                session.doWork(connection -> connection.setReadOnly(true));
+            }
             transaction = session.beginTransaction();
             T rsl = command.apply(session);
+            if (!readOnly) {
+                var flushSample = metrics.start();
+                session.flush();
+                metrics.session(RepositoryMetrics.SESSION_FLUSH, flushSample, method);
+                session.setHibernateFlushMode(FlushMode.MANUAL);
+            }
             transaction.commit();
+            success = true;
+            RequestStatements.rows(metrics.rows(method, rsl));
             return rsl;
         } catch (Exception e) {
             if (transaction != null) {
                 transaction.rollback();
             }
             throw e;
+        } finally {
+            metrics.query(sample, method, readOnly, success);
         }
     }
 }
@@ -0,0 +1,21 @@
+package ru.job4j.todo.repository;
+
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.stereotype.Component;
+import ru.job4j.todo.configuration.CacheConfiguration;
+
+@Component
+public class ReferenceDataCache {
+
+    @CacheEvict(cacheNames = CacheConfiguration.PRIORITIES, allEntries = true)
+    public void evictPriorities() {
+    }
+
+    @CacheEvict(cacheNames = CacheConfiguration.CATEGORIES, allEntries = true)
+    public void evictCategories() {
+    }
+
+    @CacheEvict(cacheNames = {CacheConfiguration.PRIORITIES, CacheConfiguration.CATEGORIES}, allEntries = true)
+    public void evictAll() {
+    }
+}
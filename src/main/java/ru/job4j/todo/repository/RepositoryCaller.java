@@ -0,0 +1,46 @@
+package ru.job4j.todo.repository;
+
+/**
+ * Определяет по стеку вызовов метод репозитория, из которого пришел вызов {@link CrudRepository},
+ * в виде {@code TaskStore.findAll}.
+ */
+final class RepositoryCaller {
+
+    private static final StackWalker WALKER = StackWalker.getInstance();
+    private static final String CRUD_REPOSITORY = CrudRepository.class.getName();
+
+    private RepositoryCaller() {
+    }
+
+    /**
+     * Пропускает кадры до {@link CrudRepository} (метрики, драйвер, Hibernate), берет первый
+     * метод после него и поднимается по стеку, пока вызовы идут внутри того же класса: так
+     * вспомогательные методы вроде {@code TaskStore.findPage} учитываются под вызвавшим
+     * их публичным методом. Если вызов пришел не через {@link CrudRepository}, возвращает "unknown".
+     */
+    static String find() {
+        return WALKER.walk(frames -> {
+            boolean inRepository = false;
+            String className = null;
+            String method = "unknown";
+            for (var iterator = frames.iterator(); iterator.hasNext();) {
+                var frame = iterator.next();
+                var frameClass = frame.getClassName();
+                if (className == null) {
+                    if (frameClass.equals(CRUD_REPOSITORY)) {
+                        inRepository = true;
+                    } else if (inRepository) {
+                        className = frameClass;
+                        method = frame.getMethodName();
+                    }
+                } else if (frameClass.equals(className)) {
+                    method = frame.getMethodName();
+                } else {
+                    break;
+                }
+            }
+            return className == null ? method
+                    : className.substring(className.lastIndexOf('.') + 1) + "." + method;
+        });
+    }
+}
@@ -0,0 +1,79 @@
+package ru.job4j.todo.repository;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Метрики транзакций {@link CrudRepository}. Каждая метрика помечается тегом {@code method} -
+ * методом репозитория, из которого пришел вызов (например, {@code TaskStore.findAll}),
+ * он определяется по стеку вызовов {@link RepositoryCaller}.
+ */
+class RepositoryMetrics {
+
+    static final String QUERY = "todo.repository.query";
+    static final String TRANSACTIONS = "todo.repository.transactions";
+    static final String ROWS = "todo.repository.rows";
+    static final String SESSION_OPEN = "todo.repository.session.open";
+    static final String SESSION_FLUSH = "todo.repository.session.flush";
+
+    private final MeterRegistry registry;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, Counter> counters = new ConcurrentHashMap<>();
+    private final Map<String, DistributionSummary> summaries = new ConcurrentHashMap<>();
+
+    RepositoryMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    Timer.Sample start() {
+        return Timer.start(registry);
+    }
+
+    void query(Timer.Sample sample, String method, boolean readOnly, boolean success) {
+        var outcome = success ? "success" : "error";
+        sample.stop(timers.computeIfAbsent(QUERY + method + readOnly + outcome, key -> Timer.builder(QUERY)
+                .description("Время выполнения команды репозитория в транзакции")
+                .tags("method", method, "readOnly", String.valueOf(readOnly), "outcome", outcome)
+                .register(registry)));
+        counters.computeIfAbsent(TRANSACTIONS + method + success, key -> Counter.builder(TRANSACTIONS)
+                .tags("method", method, "outcome", success ? "commit" : "rollback")
+                .register(registry)).increment();
+    }
+
+    void session(String name, Timer.Sample sample, String method) {
+        sample.stop(timers.computeIfAbsent(name + method, key -> Timer.builder(name)
+                .tags("method", method)
+                .register(registry)));
+    }
+
+    /**
+     * Записывает и возвращает число строк результата команды.
+     */
+    long rows(String method, Object result) {
+        if (result == null) {
+            return 0;
+        }
+        long rows;
+        if (result instanceof Collection<?> collection) {
+            rows = collection.size();
+        } else if (result instanceof Optional<?> optional) {
+            rows = optional.isPresent() ? 1 : 0;
+        } else if (result instanceof Number number) {
+            rows = number.longValue();
+        } else {
+            rows = 1;
+        }
+        summaries.computeIfAbsent(method, key -> DistributionSummary.builder(ROWS)
+                .description("Число строк, возвращенных или измененных командой")
+                .tags("method", method)
+                .register(registry)).record(rows);
+        return rows;
+    }
+}
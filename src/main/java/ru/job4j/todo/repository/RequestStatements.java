@@ -0,0 +1,64 @@
+package ru.job4j.todo.repository;
+
+import java.util.Optional;
+
+/**
+ * Счетчики SQL-запросов и строк, привязанные к потоку на время HTTP-запроса.
+ * Запросы считает {@link StatementCountListener} на уровне JDBC, поэтому учитываются и запросы,
+ * которые Hibernate выполняет сам (ленивая загрузка, вызовы последовательности);
+ * строки - возвращенные или измененные командами {@link CrudRepository}.
+ * Вне открытых счетчиков учет не ведется.
+ */
+public final class RequestStatements implements AutoCloseable {
+
+    private static final ThreadLocal<RequestStatements> CURRENT = new ThreadLocal<>();
+
+    private long statements;
+    private long rows;
+
+    private RequestStatements() {
+    }
+
+    /**
+     * Открывает счетчики в текущем потоке, закрывать - через {@link #close()}.
+     */
+    public static RequestStatements begin() {
+        var counters = new RequestStatements();
+        CURRENT.set(counters);
+        return counters;
+    }
+
+    /**
+     * Счетчики, открытые в текущем потоке.
+     */
+    public static Optional<RequestStatements> current() {
+        return Optional.ofNullable(CURRENT.get());
+    }
+
+    static void statement() {
+        var counters = CURRENT.get();
+        if (counters != null) {
+            counters.statements++;
+        }
+    }
+
+    static void rows(long rows) {
+        var counters = CURRENT.get();
+        if (counters != null) {
+            counters.rows += rows;
+        }
+    }
+
+    public long statements() {
+        return statements;
+    }
+
+    public long rows() {
+        return rows;
+    }
+
+    @Override
+    public void close() {
+        CURRENT.remove();
+    }
+}
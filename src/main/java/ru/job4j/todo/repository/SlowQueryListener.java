@@ -0,0 +1,46 @@
+package ru.job4j.todo.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Журнал медленных запросов. Подключается к источнику данных через datasource-proxy и пишет
+ * в лог SQL, число привязанных параметров, время выполнения и метод репозитория, из которого
+ * пришел запрос. Запросы быстрее порога не разбираются: на них тратится одно сравнение.
+ */
+@Slf4j
+public class SlowQueryListener implements QueryExecutionListener {
+
+    private final long thresholdMillis;
+
+    public SlowQueryListener(Duration threshold) {
+        this.thresholdMillis = threshold.toMillis();
+    }
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        if (execInfo.getElapsedTime() < thresholdMillis) {
+            return;
+        }
+        var binds = queryInfoList.stream()
+                .flatMap(query -> query.getParametersList().stream())
+                .mapToInt(List::size)
+                .sum();
+        var sql = queryInfoList.stream()
+                .map(QueryInfo::getQuery)
+                .collect(Collectors.joining("; "));
+        log.warn("Медленный запрос: {} мс, метод {}, пакет {}, параметров {}, успешно {}, SQL: {}",
+                execInfo.getElapsedTime(), RepositoryCaller.find(), execInfo.getBatchSize(), binds,
+                execInfo.isSuccess(), sql);
+    }
+}
@@ -0,0 +1,23 @@
+package ru.job4j.todo.repository;
+
+import net.ttddyy.dsproxy.ExecutionInfo;
+import net.ttddyy.dsproxy.QueryInfo;
+import net.ttddyy.dsproxy.listener.QueryExecutionListener;
+
+import java.util.List;
+
+/**
+ * Считает выполненные JDBC-запросы в {@link RequestStatements} текущего потока.
+ * JDBC-пакет считается одним запросом: это один обмен с базой данных.
+ */
+public class StatementCountListener implements QueryExecutionListener {
+
+    @Override
+    public void beforeQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+    }
+
+    @Override
+    public void afterQuery(ExecutionInfo execInfo, List<QueryInfo> queryInfoList) {
+        RequestStatements.statement();
+    }
+}
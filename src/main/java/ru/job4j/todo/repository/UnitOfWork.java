@@ -0,0 +1,119 @@
+package ru.job4j.todo.repository;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.Transaction;
+
+import java.util.Optional;
+
+/**
+ * Единица работы, привязанная к потоку: пока она открыта, чтения {@link CrudRepository} выполняются
+ * в одной общей сессии и одной транзакции только на чтение, то есть на одном соединении из пула.
+ * Сессия и соединение берутся при первом чтении, а не при открытии единицы работы.
+ * Запись по-прежнему выполняется в своей сессии и транзакции; после нее общая сессия очищается,
+ * чтобы следующие чтения не вернули устаревшие сущности.
+ * Ведет счетчик соединений, взятых из пула за время единицы работы.
+ */
+@Slf4j
+public final class UnitOfWork implements AutoCloseable {
+
+    private static final ThreadLocal<UnitOfWork> CURRENT = new ThreadLocal<>();
+
+    private final SessionFactory sf;
+    private Session session;
+    private Transaction transaction;
+    private int connections;
+
+    private UnitOfWork(SessionFactory sf) {
+        this.sf = sf;
+    }
+
+    /**
+     * Открывает единицу работы в текущем потоке, закрывать - через {@link #close()}.
+     */
+    public static UnitOfWork begin(SessionFactory sf) {
+        if (CURRENT.get() != null) {
+            throw new IllegalStateException("Единица работы уже открыта в потоке " + Thread.currentThread().getName());
+        }
+        var unitOfWork = new UnitOfWork(sf);
+        CURRENT.set(unitOfWork);
+        return unitOfWork;
+    }
+
+    /**
+     * Открытая в текущем потоке единица работы над той же фабрикой сессий.
+     */
+    static Optional<UnitOfWork> current(SessionFactory sf) {
+        var unitOfWork = CURRENT.get();
+        return unitOfWork != null && unitOfWork.sf == sf ? Optional.of(unitOfWork) : Optional.empty();
+    }
+
+    /**
+     * Число соединений, взятых из пула с открытия единицы работы.
+     */
+    public int connections() {
+        return connections;
+    }
+
+    Session session() {
+        if (session == null) {
+            session = sf.openSession();
+            session.setDefaultReadOnly(true);
+            session.setHibernateFlushMode(FlushMode.MANUAL);
+            session.doWork(connection -> connection.setReadOnly(true));
+            transaction = session.beginTransaction();
+            connections++;
+        }
+        return session;
+    }
+
+    /**
+     * Учитывает соединение, взятое для отдельной транзакции, и очищает общую сессию после записи.
+     */
+    void separate(boolean readOnly) {
+        connections++;
+        if (!readOnly && session != null) {
+            session.clear();
+        }
+    }
+
+    /**
+     * Откатывает и закрывает общую сессию после ошибки: транзакция могла стать непригодной,
+     * следующее чтение откроет новую.
+     */
+    void discard() {
+        try {
+            if (transaction != null && transaction.isActive()) {
+                transaction.rollback();
+            }
+        } catch (Exception e) {
+            log.error("Ошибка отката транзакции единицы работы", e);
+        } finally {
+            closeSession();
+        }
+    }
+
+    @Override
+    public void close() {
+        CURRENT.remove();
+        try {
+            if (transaction != null && transaction.isActive()) {
+                transaction.commit();
+            }
+        } catch (Exception e) {
+            log.error("Ошибка завершения транзакции единицы работы", e);
+        } finally {
+            closeSession();
+        }
+    }
+
+    private void closeSession() {
+        if (session != null) {
+            session.close();
+        }
+        session = null;
+        transaction = null;
+    }
+}
@@ -2,7 +2,9 @@ package ru.job4j.todo.repository.category;
 
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Repository;
+import ru.job4j.todo.configuration.CacheConfiguration;
 import ru.job4j.todo.model.Category;
 import ru.job4j.todo.repository.CrudRepository;
 
@@ -16,9 +18,10 @@ public class SimpleCategoryRepository implements CategoryRepository {
     private final CrudRepository crudRepository;
 
     @Override
+    @Cacheable(cacheNames = CacheConfiguration.CATEGORIES, key = "'all'", unless = "#result.isEmpty()")
     public Collection<Category> findAll() {
         try {
-            return crudRepository.query("from Category ORDER BY name", Category.class);
+            return List.copyOf(crudRepository.query("from Category ORDER BY name", Category.class));
         } catch (Exception e) {
             log.error("Ошибка получения категорий", e);
         }
@@ -2,7 +2,9 @@ package ru.job4j.todo.repository.priority;
 
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Repository;
+import ru.job4j.todo.configuration.CacheConfiguration;
 import ru.job4j.todo.model.Priority;
 import ru.job4j.todo.repository.CrudRepository;
 
@@ -18,6 +20,7 @@ public class SimplePriorityRepository implements PriorityRepository {
     private final CrudRepository crudRepository;
 
     @Override
+    @Cacheable(cacheNames = CacheConfiguration.PRIORITIES, key = "#id", unless = "#result == null")
     public Optional<Priority> findById(int id) {
         try {
             return crudRepository.optional(session -> session.get(Priority.class, id));
@@ -28,9 +31,10 @@ public class SimplePriorityRepository implements PriorityRepository {
     }
 
     @Override
+    @Cacheable(cacheNames = CacheConfiguration.PRIORITIES, key = "'all'", unless = "#result.isEmpty()")
     public Collection<Priority> findAll() {
         try {
-            return crudRepository.query("from Priority ORDER BY name", Priority.class);
+            return List.copyOf(crudRepository.query("from Priority ORDER BY name", Priority.class));
         } catch (Exception e) {
             log.error("Ошибка получения приоритетов", e);
         }
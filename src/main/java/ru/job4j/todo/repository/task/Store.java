@@ -1,24 +1,37 @@
 package ru.job4j.todo.repository.task;
 
+import ru.job4j.todo.dto.TaskExportDTO;
+import ru.job4j.todo.dto.TaskRowDTO;
 import ru.job4j.todo.model.Task;
 
+import java.time.LocalDateTime;
 import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface Store {
-    Collection<Task> findAll();
+    List<TaskRowDTO> findAll(int userId, TaskFilter filter, TaskCursor after, int limit);
 
-    Collection<Task> findDone();
+    List<TaskRowDTO> search(int userId, String query, int offset, int limit);
 
-    Collection<Task> findNew();
+    Optional<Task> findById(int userId, int id);
 
-    Optional<Task> findById(int id);
+    boolean exportAll(int userId, Consumer<TaskExportDTO> consumer);
 
-    boolean setDoneById(int id);
+    boolean setDoneById(int userId, int id);
 
-    boolean deleteById(int id);
+    boolean deleteById(int userId, int id);
 
-    boolean update(Task task);
+    int setDoneByIds(int userId, Collection<Integer> ids);
+
+    int deleteByIds(int userId, Collection<Integer> ids);
+
+    int deleteDoneCreatedBefore(int userId, LocalDateTime before);
+
+    UpdateResult update(Task task);
 
     boolean save(Task task);
+
+    boolean saveAll(Collection<Task> tasks);
 }
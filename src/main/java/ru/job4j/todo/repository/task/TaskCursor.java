@@ -0,0 +1,35 @@
+package ru.job4j.todo.repository.task;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Optional;
+
+/**
+ * Позиция в списке заданий, упорядоченном по {@code (created, id)}.
+ * Страница, начинающаяся после курсора, выбирается по индексу без OFFSET.
+ */
+public record TaskCursor(LocalDateTime created, int id) {
+
+    private static final String SEPARATOR = "_";
+
+    public static Optional<TaskCursor> parse(String value) {
+        if (value == null || value.isBlank()) {
+            return Optional.empty();
+        }
+        var index = value.lastIndexOf(SEPARATOR);
+        if (index < 0) {
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(new TaskCursor(LocalDateTime.parse(value.substring(0, index)),
+                    Integer.parseInt(value.substring(index + 1))));
+        } catch (DateTimeParseException | NumberFormatException e) {
+            return Optional.empty();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return created + SEPARATOR + id;
+    }
+}
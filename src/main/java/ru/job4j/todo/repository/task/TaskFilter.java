@@ -0,0 +1,34 @@
+package ru.job4j.todo.repository.task;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Условия отбора заданий пользователя для {@link Store#findAll}. {@code null} и пустые наборы
+ * означают, что условие не задано. Категории отбираются по любой из указанных или, если
+ * {@code allCategories}, по всем сразу. Период создания задается в UTC:
+ * {@code createdFrom} включительно, {@code createdBefore} - исключительно.
+ */
+public record TaskFilter(Boolean done, Set<Integer> priorityIds, Set<Integer> categoryIds, boolean allCategories,
+                         LocalDateTime createdFrom, LocalDateTime createdBefore) {
+
+    public static final TaskFilter ALL = new TaskFilter(null, Set.of(), Set.of(), false, null, null);
+    public static final TaskFilter DONE = ALL.withDone(true);
+    public static final TaskFilter NEW = ALL.withDone(false);
+
+    public TaskFilter {
+        priorityIds = ids(priorityIds);
+        categoryIds = ids(categoryIds);
+    }
+
+    public TaskFilter withDone(Boolean done) {
+        return new TaskFilter(done, priorityIds, categoryIds, allCategories, createdFrom, createdBefore);
+    }
+
+    private static Set<Integer> ids(Collection<Integer> ids) {
+        return ids == null ? Set.of() : ids.stream().filter(Objects::nonNull).collect(Collectors.toUnmodifiableSet());
+    }
+}
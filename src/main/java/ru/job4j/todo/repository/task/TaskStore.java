@@ -2,67 +2,228 @@ package ru.job4j.todo.repository.task;
 
 import lombok.AllArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.hibernate.Session;
+import org.hibernate.StaleStateException;
+import org.hibernate.dialect.PostgreSQL81Dialect;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.graph.GraphSemantic;
 import org.springframework.stereotype.Repository;
+import ru.job4j.todo.dto.TaskExportDTO;
+import ru.job4j.todo.dto.TaskRowDTO;
+import ru.job4j.todo.model.Priority;
 import ru.job4j.todo.model.Task;
 import ru.job4j.todo.repository.CrudRepository;
 
-import java.util.Collection;
-import java.util.List;
-import java.util.Map;
-import java.util.Optional;
+import javax.persistence.OptimisticLockException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Consumer;
 
 @Slf4j
 @Repository
 @AllArgsConstructor
 public class TaskStore implements Store {
 
+    private static final int EXPORT_FETCH_SIZE = 500;
+    private static final int SEARCH_MAX_WORDS = 8;
+    private static final String ROW_SELECT = "SELECT t.id, t.title, t.created, t.done, p.id AS priority_id, "
+            + "p.name AS priority, (SELECT STRING_AGG(c.name, ', ' ORDER BY c.name) "
+            + "FROM task_categories tc JOIN categories c ON c.id = tc.category_id "
+            + "WHERE tc.task_id = t.id) AS categories "
+            + "FROM tasks t LEFT JOIN priorities p ON p.id = t.priority_id";
+
     private final CrudRepository crudRepository;
 
+    /**
+     * Выбирает страницу списка одним SQL-запросом: только отображаемые столбцы, без описания
+     * и автора (список всегда принадлежит одному пользователю), названия категорий собираются
+     * в строку в самом запросе. Строки не становятся сущностями и не отслеживаются сессией.
+     * Условия фильтра собираются в один параметризованный WHERE, который ложится на индексы
+     * {@code (user_id, created, id)} и {@code (user_id, done, created, id)}; отбор по категориям -
+     * полусоединение через EXISTS по уникальному индексу {@code (task_id, category_id)},
+     * поэтому строки заданий не размножаются.
+     */
     @Override
-    public Collection<Task> findAll() {
+    public List<TaskRowDTO> findAll(int userId, TaskFilter filter, TaskCursor after, int limit) {
         try {
-            return crudRepository.query("SELECT DISTINCT t from Task t LEFT JOIN FETCH t.priority LEFT JOIN FETCH t.categories ORDER BY t.created", Task.class);
+            var where = new StringJoiner(" AND ", " WHERE ", "");
+            var args = new HashMap<String, Object>();
+            where.add("t.user_id = :userId");
+            args.put("userId", userId);
+            if (filter.done() != null) {
+                where.add("t.done = :done");
+                args.put("done", filter.done());
+            }
+            if (!filter.priorityIds().isEmpty()) {
+                where.add("t.priority_id IN (:priorityIds)");
+                args.put("priorityIds", filter.priorityIds());
+            }
+            if (!filter.categoryIds().isEmpty()) {
+                var categories = "FROM task_categories tc WHERE tc.task_id = t.id AND tc.category_id IN (:categoryIds)";
+                where.add(filter.allCategories()
+                        ? "(SELECT COUNT(*) " + categories + ") = :categoryCount"
+                        : "EXISTS (SELECT 1 " + categories + ")");
+                args.put("categoryIds", filter.categoryIds());
+                if (filter.allCategories()) {
+                    args.put("categoryCount", filter.categoryIds().size());
+                }
+            }
+            if (filter.createdFrom() != null) {
+                where.add("t.created >= :createdFrom");
+                args.put("createdFrom", filter.createdFrom());
+            }
+            if (filter.createdBefore() != null) {
+                where.add("t.created < :createdBefore");
+                args.put("createdBefore", filter.createdBefore());
+            }
+            if (after != null) {
+                where.add("t.created >= :created AND (t.created > :created OR t.id > :id)");
+                args.put("created", after.created());
+                args.put("id", after.id());
+            }
+            return crudRepository.nativeQuery(ROW_SELECT + where + " ORDER BY t.created, t.id", args, limit).stream()
+                    .map(TaskStore::toRow)
+                    .toList();
         } catch (Exception e) {
             log.error("Ошибка получения заданий", e);
         }
         return List.of();
     }
 
+    /**
+     * Ищет задания пользователя по словам из названия и описания. В PostgreSQL запрос разбирается
+     * {@code websearch_to_tsquery} и сопоставляется со столбцом {@code search} (tsvector с GIN-индексом,
+     * название весомее описания), результаты упорядочены по {@code ts_rank}. В H2 каждое слово ищется
+     * через LIKE в столбце {@code search} (название и описание в нижнем регистре), выше - задания,
+     * у которых слова встречаются в названии.
+     */
     @Override
-    public Collection<Task> findDone() {
+    public List<TaskRowDTO> search(int userId, String query, int offset, int limit) {
+        var words = Arrays.stream(query.trim().toLowerCase().split("\\s+"))
+                .filter(word -> !word.isEmpty())
+                .limit(SEARCH_MAX_WORDS)
+                .toList();
+        if (words.isEmpty()) {
+            return List.of();
+        }
         try {
-            return crudRepository.query("SELECT DISTINCT t from Task t LEFT JOIN FETCH t.priority LEFT JOIN FETCH t.categories WHERE done = true ORDER BY t.created", Task.class);
+            var args = new HashMap<String, Object>();
+            args.put("userId", userId);
+            String sql;
+            if (crudRepository.dialect() instanceof PostgreSQL81Dialect) {
+                args.put("query", query);
+                sql = ROW_SELECT + " WHERE t.user_id = :userId AND t.search @@ websearch_to_tsquery('russian', :query)"
+                        + " ORDER BY ts_rank(t.search, websearch_to_tsquery('russian', :query)) DESC,"
+                        + " t.created DESC, t.id DESC";
+            } else {
+                var where = new StringJoiner(" AND ", " WHERE t.user_id = :userId AND ", "");
+                var rank = new StringJoiner(" + ");
+                for (int i = 0; i < words.size(); i++) {
+                    args.put("word" + i, "%" + escapeLike(words.get(i)) + "%");
+                    where.add("t.search LIKE :word" + i + " ESCAPE '\\'");
+                    rank.add("CASE WHEN LOWER(t.title) LIKE :word" + i + " ESCAPE '\\' THEN 1 ELSE 0 END");
+                }
+                sql = ROW_SELECT + where + " ORDER BY " + rank + " DESC, t.created DESC, t.id DESC";
+            }
+            return crudRepository.nativeQuery(sql, args, offset, limit).stream()
+                    .map(TaskStore::toRow)
+                    .toList();
         } catch (Exception e) {
-            log.error("Ошибка получения заданий", e);
+            log.error("Ошибка поиска заданий", e);
         }
         return List.of();
     }
 
+    private static String escapeLike(String word) {
+        return word.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    private static TaskRowDTO toRow(Object[] row) {
+        return new TaskRowDTO(((Number) row[0]).intValue(), (String) row[1],
+                ((Timestamp) row[2]).toLocalDateTime(), (Boolean) row[3],
+                row[4] != null ? ((Number) row[4]).intValue() : 0, (String) row[5], (String) row[6]);
+    }
+
+    /**
+     * Загружает задание пользователя по плану {@link Task#DETAIL_GRAPH}: задание, автор, приоритет
+     * и категории - одним запросом. Чужое задание не находится.
+     */
     @Override
-    public Collection<Task> findNew() {
+    public Optional<Task> findById(int userId, int id) {
         try {
-            return crudRepository.query("SELECT DISTINCT t from Task t LEFT JOIN FETCH t.priority LEFT JOIN FETCH t.categories WHERE done = false ORDER BY t.created", Task.class);
+            return crudRepository.optional(session -> session
+                    .createQuery("FROM Task t WHERE t.id = :id AND t.user.id = :userId", Task.class)
+                    .setParameter("id", id)
+                    .setParameter("userId", userId)
+                    .setHint(GraphSemantic.FETCH.getJpaHintName(), session.getEntityGraph(Task.DETAIL_GRAPH))
+                    .uniqueResult());
         } catch (Exception e) {
             log.error("Ошибка получения заданий", e);
         }
-        return List.of();
+        return Optional.empty();
+    }
+
+    private static Map<String, Object> fetchGraph(Session session, String name) {
+        return Map.of(GraphSemantic.FETCH.getJpaHintName(), session.getEntityGraph(name));
     }
 
+    /**
+     * Передает все задания пользователя потребителю по одному, читая их курсором. Запрос выбирает
+     * только нужные столбцы и по строке на категорию, строки одного задания идут подряд
+     * и собираются в одно {@link TaskExportDTO}.
+     */
     @Override
-    public Optional<Task> findById(int id) {
+    public boolean exportAll(int userId, Consumer<TaskExportDTO> consumer) {
         try {
-            return crudRepository.optional("SELECT DISTINCT t from Task t LEFT JOIN FETCH t.priority LEFT JOIN FETCH t.categories WHERE t.id = :id", Task.class,
-                    Map.of("id", id));
+            var collector = new ExportRowCollector(consumer);
+            crudRepository.scroll("SELECT t.id, t.title, t.description, t.created, t.done, p.name, c.name from Task t "
+                            + "LEFT JOIN t.priority p LEFT JOIN t.categories c WHERE t.user.id = :userId "
+                            + "ORDER BY t.created, t.id, c.name",
+                    Map.of("userId", userId), EXPORT_FETCH_SIZE, collector);
+            collector.finish();
+            return true;
         } catch (Exception e) {
-            log.error("Ошибка получения заданий", e);
+            log.error("Ошибка выгрузки заданий", e);
+        }
+        return false;
+    }
+
+    private static final class ExportRowCollector implements Consumer<Object[]> {
+        private final Consumer<TaskExportDTO> consumer;
+        private Object[] task;
+        private List<String> categories;
+
+        private ExportRowCollector(Consumer<TaskExportDTO> consumer) {
+            this.consumer = consumer;
+        }
+
+        @Override
+        public void accept(Object[] row) {
+            if (task == null || !task[0].equals(row[0])) {
+                finish();
+                task = row;
+                categories = new ArrayList<>();
+            }
+            if (row[6] != null) {
+                categories.add((String) row[6]);
+            }
+        }
+
+        private void finish() {
+            if (task != null) {
+                consumer.accept(new TaskExportDTO((Integer) task[0], (String) task[1], (String) task[2],
+                        (LocalDateTime) task[3], (Boolean) task[4], (String) task[5], categories));
+                task = null;
+            }
         }
-        return Optional.empty();
     }
 
     @Override
-    public boolean setDoneById(int id) {
+    public boolean setDoneById(int userId, int id) {
         try {
-            return crudRepository.updateQuery("UPDATE Task SET done = true WHERE id = :id", Map.of("id", id));
+            return crudRepository.updateQuery("UPDATE VERSIONED Task SET done = true WHERE user.id = :userId AND id = :id",
+                    Map.of("userId", userId, "id", id));
         } catch (Exception e) {
             log.error("Ошибка обновления заданий", e);
         }
@@ -70,9 +231,10 @@ public class TaskStore implements Store {
     }
 
     @Override
-    public boolean deleteById(int id) {
+    public boolean deleteById(int userId, int id) {
         try {
-            return crudRepository.updateQuery("DELETE Task WHERE id = :id", Map.of("id", id));
+            return crudRepository.updateQuery("DELETE Task WHERE user.id = :userId AND id = :id",
+                    Map.of("userId", userId, "id", id));
         } catch (Exception e) {
             log.error("Ошибка удаления заданий", e);
         }
@@ -80,16 +242,97 @@ public class TaskStore implements Store {
     }
 
     @Override
-    public boolean update(Task task) {
+    public int setDoneByIds(int userId, Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
         try {
-            crudRepository.run(session -> session.update(task));
-            return true;
+            return crudRepository.executeUpdate("UPDATE VERSIONED Task SET done = true WHERE user.id = :userId AND id IN :ids",
+                    Map.of("userId", userId, "ids", ids));
         } catch (Exception e) {
             log.error("Ошибка обновления заданий", e);
         }
-        return false;
+        return 0;
     }
 
+    /**
+     * Удаляет задания одним запросом, строки {@code task_categories} удаляются
+     * Hibernate тем же запросом-условием перед удалением самих заданий.
+     */
+    @Override
+    public int deleteByIds(int userId, Collection<Integer> ids) {
+        if (ids.isEmpty()) {
+            return 0;
+        }
+        try {
+            return crudRepository.executeUpdate("DELETE Task WHERE user.id = :userId AND id IN :ids",
+                    Map.of("userId", userId, "ids", ids));
+        } catch (Exception e) {
+            log.error("Ошибка удаления заданий", e);
+        }
+        return 0;
+    }
+
+    @Override
+    public int deleteDoneCreatedBefore(int userId, LocalDateTime before) {
+        try {
+            return crudRepository.executeUpdate("DELETE Task WHERE user.id = :userId AND done = true AND created < :before",
+                    Map.of("userId", userId, "before", before));
+        } catch (Exception e) {
+            log.error("Ошибка удаления заданий", e);
+        }
+        return 0;
+    }
+
+    /**
+     * Переносит изменения в задание, загруженное в той же транзакции по плану {@link Task#UPDATE_GRAPH}
+     * (задание с категориями одним запросом, автор - ссылка для проверки владельца): UPDATE содержит только
+     * измененные столбцы ({@code @DynamicUpdate}) и условие на версию, категории меняются
+     * вставкой и удалением только отличающихся строк {@code task_categories}.
+     * Если версия задания не совпадает с прочитанной, обновление сразу отклоняется без блокировок;
+     * после успешного обновления задание получает новую версию.
+     * Автор, приоритет и категории могут быть ссылками, у которых задан только идентификатор;
+     * категории сравниваются по идентификатору и добавляются в коллекцию как есть, без прокси,
+     * чтобы хеширование не инициализировало их отдельными запросами.
+     * Автор задания должен быть пользователем сессии, а не значением из формы: задание другого
+     * автора не обновляется и дает {@link UpdateResult#NOT_FOUND}.
+     */
+    @Override
+    public UpdateResult update(Task task) {
+        try {
+            return crudRepository.tx(session -> {
+                var managed = session.find(Task.class, task.getId(), fetchGraph(session, Task.UPDATE_GRAPH));
+                if (managed == null || managed.getUser().getId() != task.getUser().getId()) {
+                    return UpdateResult.NOT_FOUND;
+                }
+                if (managed.getVersion() != task.getVersion()) {
+                    return UpdateResult.CONFLICT;
+                }
+                managed.setTitle(task.getTitle());
+                managed.setDescription(task.getDescription());
+                managed.setDone(task.isDone());
+                managed.setPriority(task.getPriority() != null
+                        ? session.load(Priority.class, task.getPriority().getId()) : null);
+                managed.getCategories().retainAll(task.getCategories());
+                managed.getCategories().addAll(task.getCategories());
+                session.flush();
+                task.setVersion(managed.getVersion());
+                return UpdateResult.UPDATED;
+            });
+        } catch (OptimisticLockException | StaleStateException e) {
+            log.warn("Задание {} изменено другим запросом", task.getId());
+            return UpdateResult.CONFLICT;
+        } catch (Exception e) {
+            log.error("Ошибка обновления заданий", e);
+        }
+        return UpdateResult.FAILED;
+    }
+
+    /**
+     * Автор, приоритет и категории задания могут быть ссылками, у которых задан только идентификатор:
+     * связи не каскадируются, поэтому Hibernate берет из них внешние ключи и не читает справочники.
+     * Запись - одна транзакция из INSERT задания и строк {@code task_categories}.
+     */
     @Override
     public boolean save(Task task) {
         try {
@@ -100,4 +343,30 @@ public class TaskStore implements Store {
         }
         return false;
     }
+
+    /**
+     * Сохраняет задания в одной транзакции. Вставки в {@code tasks} и {@code task_categories}
+     * отправляются JDBC-пакетами размера {@code hibernate.jdbc.batch_size}, после каждого пакета
+     * сессия сбрасывается и очищается, чтобы контекст персистентности не рос с числом заданий.
+     */
+    @Override
+    public boolean saveAll(Collection<Task> tasks) {
+        try {
+            crudRepository.run(session -> {
+                var batchSize = session.unwrap(SessionImplementor.class).getConfiguredJdbcBatchSize();
+                var count = 0;
+                for (Task task : tasks) {
+                    session.persist(task);
+                    if (batchSize != null && ++count % batchSize == 0) {
+                        session.flush();
+                        session.clear();
+                    }
+                }
+            });
+            return true;
+        } catch (Exception e) {
+            log.error("Ошибка сохранения заданий", e);
+        }
+        return false;
+    }
 }
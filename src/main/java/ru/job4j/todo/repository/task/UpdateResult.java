@@ -0,0 +1,16 @@
+package ru.job4j.todo.repository.task;
+
+/**
+ * Исход обновления задания: {@code CONFLICT} - задание изменено после того, как его прочитали
+ * (версия не совпала), {@code FAILED} - ошибка базы данных.
+ */
+public enum UpdateResult {
+    UPDATED,
+    NOT_FOUND,
+    CONFLICT,
+    FAILED;
+
+    public boolean isUpdated() {
+        return this == UPDATED;
+    }
+}
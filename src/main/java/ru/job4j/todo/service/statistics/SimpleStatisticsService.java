@@ -0,0 +1,80 @@
+package ru.job4j.todo.service.statistics;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.QueryStatistics;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Service;
+import ru.job4j.todo.dto.StatisticsDTO;
+import ru.job4j.todo.dto.StatisticsDTO.CacheRatio;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Снимок {@link org.hibernate.stat.Statistics} (сбор включен {@code hibernate.generate_statistics})
+ * и статистики Caffeine для кэшей справочников.
+ */
+@Service
+public class SimpleStatisticsService implements StatisticsService {
+
+    static final int TOP_QUERIES = 20;
+
+    private final SessionFactory sf;
+    private final CacheManager cacheManager;
+
+    public SimpleStatisticsService(SessionFactory sf, CacheManager cacheManager) {
+        this.sf = sf;
+        this.cacheManager = cacheManager;
+    }
+
+    @Override
+    public StatisticsDTO getStatistics() {
+        var statistics = sf.getStatistics();
+        var topQueries = Arrays.stream(statistics.getQueries())
+                .map(query -> toQuery(query, statistics.getQueryStatistics(query)))
+                .sorted(Comparator.comparingLong(StatisticsDTO.Query::totalMillis).reversed())
+                .limit(TOP_QUERIES)
+                .toList();
+        return new StatisticsDTO(
+                Instant.ofEpochMilli(statistics.getStartTime()),
+                statistics.getSessionOpenCount(),
+                statistics.getTransactionCount(),
+                statistics.getPrepareStatementCount(),
+                statistics.getQueryExecutionCount(),
+                statistics.getQueryExecutionMaxTime(),
+                statistics.getQueryExecutionMaxTimeQueryString(),
+                statistics.getEntityLoadCount(),
+                statistics.getEntityFetchCount(),
+                statistics.getEntityInsertCount(),
+                statistics.getEntityUpdateCount(),
+                statistics.getEntityDeleteCount(),
+                statistics.getCollectionLoadCount(),
+                statistics.getCollectionFetchCount(),
+                CacheRatio.of(statistics.getSecondLevelCacheHitCount(), statistics.getSecondLevelCacheMissCount()),
+                CacheRatio.of(statistics.getQueryCacheHitCount(), statistics.getQueryCacheMissCount()),
+                caches(),
+                topQueries);
+    }
+
+    private Map<String, CacheRatio> caches() {
+        var caches = new TreeMap<String, CacheRatio>();
+        for (var name : cacheManager.getCacheNames()) {
+            var cache = cacheManager.getCache(name);
+            if (cache != null && cache.getNativeCache() instanceof Cache<?, ?> caffeine) {
+                var stats = caffeine.stats();
+                caches.put(name, CacheRatio.of(stats.hitCount(), stats.missCount()));
+            }
+        }
+        return caches;
+    }
+
+    private static StatisticsDTO.Query toQuery(String query, QueryStatistics statistics) {
+        return new StatisticsDTO.Query(query, statistics.getExecutionCount(), statistics.getExecutionRowCount(),
+                statistics.getExecutionAvgTimeAsDouble(), statistics.getExecutionMaxTime(),
+                statistics.getExecutionTotalTime());
+    }
+}
@@ -0,0 +1,7 @@
+package ru.job4j.todo.service.statistics;
+
+import ru.job4j.todo.dto.StatisticsDTO;
+
+public interface StatisticsService {
+    StatisticsDTO getStatistics();
+}
@@ -1,87 +1,196 @@
 package ru.job4j.todo.service.task;
 
 import org.springframework.stereotype.Controller;
+import ru.job4j.todo.dto.PageDTO;
 import ru.job4j.todo.dto.TaskDTO;
+import ru.job4j.todo.dto.TaskFilterDTO;
+import ru.job4j.todo.dto.TaskRowDTO;
 import ru.job4j.todo.model.Category;
 import ru.job4j.todo.model.Priority;
 import ru.job4j.todo.model.Task;
 import ru.job4j.todo.model.User;
 import ru.job4j.todo.repository.task.Store;
-import ru.job4j.todo.service.category.CategoryService;
-import ru.job4j.todo.service.priority.PriorityService;
-import ru.job4j.todo.service.user.UserService;
+import ru.job4j.todo.repository.task.TaskCursor;
+import ru.job4j.todo.repository.task.TaskFilter;
+import ru.job4j.todo.repository.task.UpdateResult;
 
+import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.time.ZonedDateTime;
 import java.util.*;
-import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Controller
 public class SimpleTaskService implements TaskService {
+    static final int PAGE_SIZE = 20;
+
     private final Store store;
-    private final UserService userService;
-    private final PriorityService priorityService;
-    private final CategoryService categoryService;
+    private final TaskVersions versions;
 
-    public SimpleTaskService(Store store, UserService userService, PriorityService priorityService, CategoryService categoryService) {
+    public SimpleTaskService(Store store, TaskVersions versions) {
         this.store = store;
-        this.userService = userService;
-        this.priorityService = priorityService;
-        this.categoryService = categoryService;
+        this.versions = versions;
     }
 
     @Override
-    public Collection<TaskDTO> findAll(User user) {
-        return taskCollectionToTaskDtoCollection(store.findAll(), user);
+    public PageDTO<TaskDTO> findAll(User user, TaskFilterDTO filter, String after) {
+        return findPage(toFilter(filter, user), user, after);
     }
 
     @Override
-    public Collection<TaskDTO> findDone(User user) {
-        return taskCollectionToTaskDtoCollection(store.findDone(), user);
+    public PageDTO<TaskDTO> findDone(User user, TaskFilterDTO filter, String after) {
+        return findPage(toFilter(filter, user).withDone(true), user, after);
     }
 
     @Override
-    public Collection<TaskDTO> findNew(User user) {
-        return taskCollectionToTaskDtoCollection(store.findNew(), user);
+    public PageDTO<TaskDTO> findNew(User user, TaskFilterDTO filter, String after) {
+        return findPage(toFilter(filter, user).withDone(false), user, after);
+    }
+
+    /**
+     * Даты фильтра задаются в часовом поясе пользователя: период переводится в UTC
+     * от начала первого дня до начала дня, следующего за последним.
+     */
+    private TaskFilter toFilter(TaskFilterDTO filter, User user) {
+        var zoneId = getZoneId(user);
+        return new TaskFilter(null, filter.getPriority(), filter.getCategory(), filter.isAllCategories(),
+                filter.getFrom() != null ? toUtc(filter.getFrom().atStartOfDay(zoneId)) : null,
+                filter.getTo() != null ? toUtc(filter.getTo().plusDays(1).atStartOfDay(zoneId)) : null);
+    }
+
+    private static LocalDateTime toUtc(ZonedDateTime dateTime) {
+        return dateTime.withZoneSameInstant(ZoneId.of("UTC")).toLocalDateTime();
+    }
+
+    private PageDTO<TaskDTO> findPage(TaskFilter filter, User user, String after) {
+        var rows = store.findAll(user.getId(), filter, TaskCursor.parse(after).orElse(null), PAGE_SIZE + 1);
+        String nextCursor = null;
+        if (rows.size() > PAGE_SIZE) {
+            rows = rows.subList(0, PAGE_SIZE);
+            var last = rows.get(PAGE_SIZE - 1);
+            nextCursor = new TaskCursor(last.created(), last.id()).toString();
+        }
+        return toPage(rows, nextCursor, user);
+    }
+
+    /**
+     * Результаты поиска упорядочены по релевантности, а не по дате, поэтому курсором служит
+     * смещение следующей страницы.
+     */
+    @Override
+    public PageDTO<TaskDTO> search(User user, String query, String after) {
+        var offset = parseOffset(after);
+        var rows = store.search(user.getId(), query, offset, PAGE_SIZE + 1);
+        String nextCursor = null;
+        if (rows.size() > PAGE_SIZE) {
+            rows = rows.subList(0, PAGE_SIZE);
+            nextCursor = String.valueOf(offset + PAGE_SIZE);
+        }
+        return toPage(rows, nextCursor, user);
+    }
+
+    private static int parseOffset(String after) {
+        try {
+            return after != null ? Math.max(Integer.parseInt(after), 0) : 0;
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private PageDTO<TaskDTO> toPage(List<TaskRowDTO> rows, String nextCursor, User user) {
+        var zoneId = getZoneId(user);
+        return new PageDTO<>(rows.stream().map(row -> rowToTaskDto(row, user, zoneId)).toList(), nextCursor);
     }
 
     @Override
     public Optional<TaskDTO> findById(int id, User user) {
-        return store.findById(id)
+        return store.findById(user.getId(), id)
                 .map(task -> this.taskToTaskDto(task, user));
     }
 
     @Override
-    public boolean setDoneById(int id) {
-        return store.setDoneById(id);
+    public String getVersion(User user) {
+        return versions.get(user.getId());
     }
 
     @Override
-    public boolean deleteById(int id) {
-        return store.deleteById(id);
+    public boolean setDoneById(int id, User user) {
+        return bumpIf(store.setDoneById(user.getId(), id), user.getId());
     }
 
     @Override
-    public boolean update(TaskDTO task) {
-        return store.update(taskDtoToTask(task));
+    public boolean deleteById(int id, User user) {
+        return bumpIf(store.deleteById(user.getId(), id), user.getId());
     }
 
     @Override
-    public boolean save(TaskDTO task) {
-        return store.save(taskDtoToTask(task));
+    public int setDoneByIds(Collection<Integer> ids, User user) {
+        return bumpIf(store.setDoneByIds(user.getId(), ids), user.getId());
     }
 
-    private List<TaskDTO> taskCollectionToTaskDtoCollection(Collection<Task> taskCollection, User user) {
-        return taskCollection.stream()
-                .map(task -> taskToTaskDto(task, user))
-                .toList();
+    @Override
+    public int deleteByIds(Collection<Integer> ids, User user) {
+        return bumpIf(store.deleteByIds(user.getId(), ids), user.getId());
+    }
+
+    @Override
+    public int deleteDoneCreatedBefore(LocalDateTime before, User user) {
+        return bumpIf(store.deleteDoneCreatedBefore(user.getId(),
+                before.atZone(getZoneId(user)).withZoneSameInstant(ZoneId.of("UTC")).toLocalDateTime()),
+                user.getId());
+    }
+
+    /**
+     * Автором задания всегда становится пользователь сессии: {@code userId} из формы не используется,
+     * поэтому нельзя создать или изменить задание от имени другого пользователя.
+     */
+    @Override
+    public UpdateResult update(TaskDTO task, User user) {
+        var result = store.update(taskDtoToTask(task, userReference(user.getId())));
+        bumpIf(result.isUpdated(), user.getId());
+        return result;
+    }
+
+    @Override
+    public boolean save(TaskDTO task, User user) {
+        return bumpIf(store.save(taskDtoToTask(task, userReference(user.getId()))), user.getId());
+    }
+
+    @Override
+    public boolean saveAll(Collection<TaskDTO> tasks, User user) {
+        var author = userReference(user.getId());
+        return bumpIf(store.saveAll(tasks.stream()
+                .map(task -> taskDtoToTask(task, author))
+                .toList()), user.getId());
+    }
+
+    private boolean bumpIf(boolean changed, int userId) {
+        if (changed) {
+            versions.bump(userId);
+        }
+        return changed;
+    }
+
+    private int bumpIf(int changed, int userId) {
+        if (changed > 0) {
+            versions.bump(userId);
+        }
+        return changed;
+    }
+
+    private TaskDTO rowToTaskDto(TaskRowDTO row, User user, ZoneId zoneId) {
+        return new TaskDTO(row.id(), row.title(), null,
+                row.created().atZone(ZoneId.of("UTC")).withZoneSameInstant(zoneId).toLocalDateTime(),
+                row.done(), user.getId(), user.getName(),
+                row.priorityId(), row.priority() != null ? row.priority() : "",
+                List.of(), row.categories() != null ? row.categories() : "", 0);
     }
 
     private TaskDTO taskToTaskDto(Task task, User user) {
         Priority priority = task.getPriority();
         return new TaskDTO(task.getId(), task.getTitle(), task.getDescription(),
                 task.getCreated().atZone(ZoneId.of("UTC")).
-                        withZoneSameInstant(user.getTimezone() != null ? ZoneId.of(user.getTimezone()) : TimeZone.getDefault().toZoneId())
+                        withZoneSameInstant(getZoneId(user))
                         .toLocalDateTime(),
                 task.isDone(), task.getUser().getId(), task.getUser().getName(),
                 priority != null ? priority.getId() : 0, priority != null ? priority.getName() : "",
@@ -89,17 +198,35 @@ public class SimpleTaskService implements TaskService {
                  task.getCategories().stream()
                          .map(Category::getName)
                          .sorted()
-                         .collect(Collectors.joining(", ")));
+                         .collect(Collectors.joining(", ")),
+                task.getVersion());
     }
 
-    private Task taskDtoToTask(TaskDTO task) {
-        Map<Integer, Category> categoryMap = categoryService.findAll().stream()
-                .collect(Collectors.toMap(Category::getId, Function.identity()));
+    private ZoneId getZoneId(User user) {
+        return user.getTimezone() != null ? ZoneId.of(user.getTimezone()) : TimeZone.getDefault().toZoneId();
+    }
+
+    /**
+     * Автор, приоритет и категории передаются хранилищу только идентификаторами: хранилище
+     * подставляет вместо них ссылки Hibernate и не читает справочники при записи.
+     */
+    private Task taskDtoToTask(TaskDTO task, User user) {
+        Priority priority = null;
+        if (task.getPriorityId() > 0) {
+            priority = new Priority();
+            priority.setId(task.getPriorityId());
+        }
         return new Task(task.getId(), task.getTitle(), task.getDescription(), task.getCreated(), task.isDone(),
-                userService.findById(task.getUserId()).orElse(null),
-                priorityService.findById(task.getPriorityId()).orElse(null),
+                user, priority,
                 task.getCategoriesId().stream()
-                        .map(categoryMap::get)
-                        .filter(Objects::nonNull).toList());
+                        .map(id -> new Category(id, null))
+                        .collect(Collectors.toSet()),
+                task.getVersion());
+    }
+
+    private static User userReference(int id) {
+        var user = new User();
+        user.setId(id);
+        return user;
     }
 }
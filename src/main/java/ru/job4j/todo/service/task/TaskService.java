@@ -1,25 +1,41 @@
 package ru.job4j.todo.service.task;
 
+import ru.job4j.todo.dto.PageDTO;
 import ru.job4j.todo.dto.TaskDTO;
+import ru.job4j.todo.dto.TaskFilterDTO;
 import ru.job4j.todo.model.User;
+import ru.job4j.todo.repository.task.UpdateResult;
 
+import java.time.LocalDateTime;
 import java.util.Collection;
 import java.util.Optional;
 
 public interface TaskService {
-    Collection<TaskDTO> findAll(User user);
+    PageDTO<TaskDTO> findAll(User user, TaskFilterDTO filter, String after);
 
-    Collection<TaskDTO> findDone(User user);
+    PageDTO<TaskDTO> findDone(User user, TaskFilterDTO filter, String after);
 
-    Collection<TaskDTO> findNew(User user);
+    PageDTO<TaskDTO> findNew(User user, TaskFilterDTO filter, String after);
+
+    PageDTO<TaskDTO> search(User user, String query, String after);
 
     Optional<TaskDTO> findById(int id, User user);
 
-    boolean setDoneById(int id);
+    String getVersion(User user);
+
+    boolean setDoneById(int id, User user);
+
+    boolean deleteById(int id, User user);
+
+    int setDoneByIds(Collection<Integer> ids, User user);
+
+    int deleteByIds(Collection<Integer> ids, User user);
+
+    int deleteDoneCreatedBefore(LocalDateTime before, User user);
 
-    boolean deleteById(int id);
+    UpdateResult update(TaskDTO task, User user);
 
-    boolean update(TaskDTO task);
+    boolean save(TaskDTO task, User user);
 
-    boolean save(TaskDTO task);
+    boolean saveAll(Collection<TaskDTO> tasks, User user);
 }
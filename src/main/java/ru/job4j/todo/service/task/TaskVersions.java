@@ -0,0 +1,32 @@
+package ru.job4j.todo.service.task;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Версии данных заданий по пользователям для условных GET-запросов. Версия увеличивается
+ * после каждой успешной записи заданий пользователя, поэтому страница с прежней версией
+ * в If-None-Match отвечает 304 без обращения к базе. Счетчики хранятся в памяти,
+ * в версию входит момент запуска, чтобы ETag до перезапуска не совпал с новыми.
+ */
+@Component
+public class TaskVersions {
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), Character.MAX_RADIX);
+    private final Map<Integer, AtomicLong> versions = new ConcurrentHashMap<>();
+
+    public String get(int userId) {
+        return userId + "-" + epoch + "-" + counter(userId).get();
+    }
+
+    public void bump(int userId) {
+        counter(userId).incrementAndGet();
+    }
+
+    private AtomicLong counter(int userId) {
+        return versions.computeIfAbsent(userId, id -> new AtomicLong());
+    }
+}
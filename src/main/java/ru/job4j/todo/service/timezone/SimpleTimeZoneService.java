@@ -0,0 +1,78 @@
+package ru.job4j.todo.service.timezone;
+
+import org.springframework.stereotype.Service;
+import org.springframework.util.DigestUtils;
+import ru.job4j.todo.dto.TimeZoneCatalogDTO;
+import ru.job4j.todo.dto.TimeZoneDTO;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.zone.ZoneOffsetTransition;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import java.util.TimeZone;
+
+/**
+ * Строит список часовых поясов один раз и перестраивает его только после ближайшего
+ * перехода смещения (например, на летнее время) в каком-либо из поясов.
+ */
+@Service
+public class SimpleTimeZoneService implements TimeZoneService {
+
+    private static final Duration MAX_VALIDITY = Duration.ofDays(7);
+
+    private final Clock clock;
+    private volatile TimeZoneCatalogDTO catalog;
+
+    public SimpleTimeZoneService() {
+        this(Clock.systemUTC());
+    }
+
+    public SimpleTimeZoneService(Clock clock) {
+        this.clock = clock;
+    }
+
+    @Override
+    public TimeZoneCatalogDTO getCatalog() {
+        var now = clock.instant();
+        var current = catalog;
+        if (current == null || !now.isBefore(current.expires())) {
+            current = buildCatalog(now);
+            catalog = current;
+        }
+        return current;
+    }
+
+    private TimeZoneCatalogDTO buildCatalog(Instant now) {
+        var expires = now.plus(MAX_VALIDITY);
+        var zones = ZoneId.getAvailableZoneIds().stream()
+                .sorted()
+                .map(id -> {
+                    ZoneId zoneId = ZoneId.of(id);
+                    return new TimeZoneDTO(id, id + " : (UTC " + zoneId.getRules().getOffset(now).getId() + ") "
+                            + TimeZone.getTimeZone(zoneId).getDisplayName());
+                })
+                .toList();
+        var nextTransition = ZoneId.getAvailableZoneIds().stream()
+                .map(id -> ZoneId.of(id).getRules().nextTransition(now))
+                .filter(Objects::nonNull)
+                .map(ZoneOffsetTransition::getInstant)
+                .min(Comparator.naturalOrder());
+        if (nextTransition.isPresent() && nextTransition.get().isBefore(expires)) {
+            expires = nextTransition.get();
+        }
+        return new TimeZoneCatalogDTO(zones, version(zones), expires);
+    }
+
+    private String version(List<TimeZoneDTO> zones) {
+        var content = new StringBuilder();
+        for (TimeZoneDTO zone : zones) {
+            content.append(zone.id()).append('=').append(zone.name()).append('\n');
+        }
+        return DigestUtils.md5DigestAsHex(content.toString().getBytes(StandardCharsets.UTF_8));
+    }
+}
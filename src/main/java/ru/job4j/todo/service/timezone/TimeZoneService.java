@@ -0,0 +1,7 @@
+package ru.job4j.todo.service.timezone;
+
+import ru.job4j.todo.dto.TimeZoneCatalogDTO;
+
+public interface TimeZoneService {
+    TimeZoneCatalogDTO getCatalog();
+}
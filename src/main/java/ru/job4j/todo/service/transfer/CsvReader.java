@@ -0,0 +1,78 @@
+package ru.job4j.todo.service.transfer;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Читает записи CSV (RFC 4180) по одной: поля в кавычках могут содержать запятые,
+ * переводы строк и удвоенные кавычки.
+ */
+class CsvReader {
+
+    private final Reader reader;
+    private int next = -2;
+
+    CsvReader(Reader reader) {
+        this.reader = reader;
+    }
+
+    /**
+     * @return поля очередной записи или {@code null}, если записи закончились
+     */
+    List<String> next() throws IOException {
+        var ch = read();
+        if (ch == -1) {
+            return null;
+        }
+        var fields = new ArrayList<String>();
+        var field = new StringBuilder();
+        var quoted = false;
+        while (true) {
+            if (quoted) {
+                if (ch == -1) {
+                    throw new IOException("Незакрытая кавычка в записи CSV");
+                }
+                if (ch == '"') {
+                    var following = read();
+                    if (following == '"') {
+                        field.append('"');
+                    } else {
+                        quoted = false;
+                        ch = following;
+                        continue;
+                    }
+                } else {
+                    field.append((char) ch);
+                }
+            } else if (ch == '"' && field.isEmpty()) {
+                quoted = true;
+            } else if (ch == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else if (ch == '\r' || ch == '\n' || ch == -1) {
+                if (ch == '\r') {
+                    var following = read();
+                    if (following != '\n') {
+                        next = following;
+                    }
+                }
+                fields.add(field.toString());
+                return fields;
+            } else {
+                field.append((char) ch);
+            }
+            ch = read();
+        }
+    }
+
+    private int read() throws IOException {
+        if (next != -2) {
+            var ch = next;
+            next = -2;
+            return ch;
+        }
+        return reader.read();
+    }
+}
@@ -0,0 +1,92 @@
+package ru.job4j.todo.service.transfer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.stereotype.Service;
+import ru.job4j.todo.dto.TaskExportDTO;
+import ru.job4j.todo.model.User;
+import ru.job4j.todo.repository.task.Store;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.TimeZone;
+import java.util.function.Consumer;
+
+/**
+ * Пишет задания пользователя в поток по мере чтения их из базы: в памяти держится
+ * только текущее задание, поэтому объем выгрузки не ограничен размером кучи.
+ */
+@Service
+public class SimpleTaskExportService implements TaskExportService {
+
+    private static final String CSV_LINE_END = "\r\n";
+
+    static final String CSV_HEADER = "id,title,description,created,done,priority,categories";
+
+    private final Store store;
+    private final ObjectWriter jsonWriter;
+
+    public SimpleTaskExportService(Store store, ObjectMapper objectMapper) {
+        this.store = store;
+        this.jsonWriter = objectMapper.writer().without(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+    }
+
+    @Override
+    public void export(User user, TaskFileFormat format, OutputStream out) throws IOException {
+        var zoneId = user.getTimezone() != null ? ZoneId.of(user.getTimezone()) : TimeZone.getDefault().toZoneId();
+        var writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        if (format == TaskFileFormat.CSV) {
+            writer.write(CSV_HEADER + CSV_LINE_END);
+            writer.flush();
+            write(user, zoneId, task -> writeCsv(writer, task));
+        } else {
+            write(user, zoneId, task -> writeJson(writer, task));
+        }
+        writer.flush();
+    }
+
+    private void write(User user, ZoneId zoneId, Consumer<TaskExportDTO> consumer) throws IOException {
+        if (!store.exportAll(user.getId(), task -> consumer.accept(toUserZone(task, zoneId)))) {
+            throw new IOException("Выгрузка заданий прервана");
+        }
+    }
+
+    private TaskExportDTO toUserZone(TaskExportDTO task, ZoneId zoneId) {
+        var created = task.created().atOffset(ZoneOffset.UTC).atZoneSameInstant(zoneId).toLocalDateTime();
+        return new TaskExportDTO(task.id(), task.title(), task.description(), created, task.done(),
+                task.priority(), task.categories());
+    }
+
+    private void writeCsv(Writer writer, TaskExportDTO task) {
+        try {
+            writer.write(String.join(",", String.valueOf(task.id()), csv(task.title()), csv(task.description()),
+                    task.created().toString(), String.valueOf(task.done()), csv(task.priority()),
+                    csv(String.join(";", task.categories()))));
+            writer.write(CSV_LINE_END);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void writeJson(Writer writer, TaskExportDTO task) {
+        try {
+            writer.write(jsonWriter.writeValueAsString(task));
+            writer.write("\n");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.contains(",") || value.contains("\"") || value.contains("\n") || value.contains("\r")) {
+            return "\"" + value.replace("\"", "\"\"") + "\"";
+        }
+        return value;
+    }
+}
@@ -0,0 +1,201 @@
+package ru.job4j.todo.service.transfer;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import org.springframework.stereotype.Service;
+import ru.job4j.todo.dto.TaskDTO;
+import ru.job4j.todo.dto.TaskExportDTO;
+import ru.job4j.todo.dto.TaskImportResultDTO;
+import ru.job4j.todo.model.Category;
+import ru.job4j.todo.model.Priority;
+import ru.job4j.todo.model.User;
+import ru.job4j.todo.service.category.CategoryService;
+import ru.job4j.todo.service.priority.PriorityService;
+import ru.job4j.todo.service.task.TaskService;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeParseException;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Загружает задания из файла в формате выгрузки, читая его по одной записи. Приоритеты и категории
+ * сопоставляются по названию с кэшированными справочниками, задания сохраняются пакетами
+ * по {@link #BATCH_SIZE} через {@link TaskService#saveAll}, каждый пакет - в своей транзакции,
+ * поэтому ошибка в одном пакете не отменяет уже сохраненные.
+ */
+@Service
+public class SimpleTaskImportService implements TaskImportService {
+
+    static final int BATCH_SIZE = 500;
+    static final int MAX_ERRORS = 100;
+
+    private final TaskService taskService;
+    private final PriorityService priorityService;
+    private final CategoryService categoryService;
+    private final ObjectReader jsonReader;
+
+    public SimpleTaskImportService(TaskService taskService, PriorityService priorityService,
+                                   CategoryService categoryService, ObjectMapper objectMapper) {
+        this.taskService = taskService;
+        this.priorityService = priorityService;
+        this.categoryService = categoryService;
+        this.jsonReader = objectMapper.readerFor(TaskExportDTO.class)
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+    }
+
+    @Override
+    public TaskImportResultDTO importTasks(User user, TaskFileFormat format, InputStream in) throws IOException {
+        var start = System.nanoTime();
+        var importer = new Importer(user);
+        var reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        if (format == TaskFileFormat.CSV) {
+            readCsv(reader, importer);
+        } else {
+            readNdjson(reader, importer);
+        }
+        importer.flush();
+        var millis = (System.nanoTime() - start) / 1_000_000;
+        return new TaskImportResultDTO(importer.imported, importer.failed, millis,
+                importer.imported * 1000.0 / Math.max(millis, 1), importer.batches, importer.errors);
+    }
+
+    private void readCsv(BufferedReader reader, Importer importer) throws IOException {
+        var csv = new CsvReader(reader);
+        var header = csv.next();
+        if (header == null) {
+            return;
+        }
+        var columns = new HashMap<String, Integer>();
+        for (int i = 0; i < header.size(); i++) {
+            columns.put(header.get(i).trim().toLowerCase(), i);
+        }
+        long row = 0;
+        for (var fields = csv.next(); fields != null; fields = csv.next()) {
+            row++;
+            if (fields.size() == 1 && fields.get(0).isBlank()) {
+                continue;
+            }
+            try {
+                var categories = field(fields, columns, "categories");
+                importer.add(row, new TaskExportDTO(0, field(fields, columns, "title"),
+                        field(fields, columns, "description"), parseCreated(field(fields, columns, "created")),
+                        Boolean.parseBoolean(field(fields, columns, "done")), field(fields, columns, "priority"),
+                        categories == null || categories.isBlank() ? List.of() : List.of(categories.split(";"))));
+            } catch (DateTimeParseException e) {
+                importer.error(row, "Некорректная дата создания: " + e.getParsedString());
+            }
+        }
+    }
+
+    private void readNdjson(BufferedReader reader, Importer importer) throws IOException {
+        long row = 0;
+        for (var line = reader.readLine(); line != null; line = reader.readLine()) {
+            row++;
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                importer.add(row, jsonReader.readValue(line));
+            } catch (JsonProcessingException e) {
+                importer.error(row, "Некорректный JSON: " + e.getOriginalMessage());
+            }
+        }
+    }
+
+    private static String field(List<String> fields, Map<String, Integer> columns, String name) {
+        var index = columns.get(name);
+        return index != null && index < fields.size() ? fields.get(index) : null;
+    }
+
+    private static LocalDateTime parseCreated(String value) {
+        return value == null || value.isBlank() ? null : LocalDateTime.parse(value.trim());
+    }
+
+    /**
+     * Накапливает проверенные задания и сохраняет их пакетами.
+     */
+    private class Importer {
+        private final User user;
+        private final ZoneId zoneId;
+        private final Map<String, Priority> priorities;
+        private final Map<String, Category> categories;
+        private List<TaskDTO> batch = new ArrayList<>(BATCH_SIZE);
+        private final List<TaskImportResultDTO.Batch> batches = new ArrayList<>();
+        private final List<TaskImportResultDTO.Error> errors = new ArrayList<>();
+        private int imported;
+        private int failed;
+
+        private Importer(User user) {
+            this.user = user;
+            this.zoneId = user.getTimezone() != null ? ZoneId.of(user.getTimezone()) : TimeZone.getDefault().toZoneId();
+            this.priorities = priorityService.findAll().stream()
+                    .collect(Collectors.toMap(Priority::getName, Function.identity(), (first, second) -> first));
+            this.categories = categoryService.findAll().stream()
+                    .collect(Collectors.toMap(Category::getName, Function.identity(), (first, second) -> first));
+        }
+
+        private void add(long row, TaskExportDTO dto) {
+            if (dto.title() == null || dto.title().isBlank()) {
+                error(row, "Не указано название задания");
+                return;
+            }
+            Priority priority = null;
+            if (dto.priority() != null && !dto.priority().isBlank()) {
+                priority = priorities.get(dto.priority().trim());
+                if (priority == null) {
+                    error(row, "Неизвестный приоритет: " + dto.priority());
+                    return;
+                }
+            }
+            var categoriesId = new ArrayList<Integer>();
+            for (String name : dto.categories() != null ? dto.categories() : List.<String>of()) {
+                var category = categories.get(name.trim());
+                if (category == null) {
+                    error(row, "Неизвестная категория: " + name);
+                    return;
+                }
+                if (!categoriesId.contains(category.getId())) {
+                    categoriesId.add(category.getId());
+                }
+            }
+            var created = dto.created() != null
+                    ? dto.created().atZone(zoneId).withZoneSameInstant(ZoneOffset.UTC).toLocalDateTime()
+                    : LocalDateTime.now(ZoneOffset.UTC);
+            batch.add(new TaskDTO(0, dto.title(), dto.description(), created, dto.done(), user.getId(),
+                    user.getName(), priority != null ? priority.getId() : 0,
+                    priority != null ? priority.getName() : "", categoriesId, "", 0));
+            if (batch.size() == BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        private void error(long row, String message) {
+            failed++;
+            if (errors.size() < MAX_ERRORS) {
+                errors.add(new TaskImportResultDTO.Error(row, message));
+            }
+        }
+
+        private void flush() {
+            if (batch.isEmpty()) {
+                return;
+            }
+            var saved = taskService.saveAll(batch, user);
+            if (saved) {
+                imported += batch.size();
+            } else {
+                failed += batch.size();
+            }
+            batches.add(new TaskImportResultDTO.Batch(batches.size() + 1, batch.size(), saved, imported));
+            batch = new ArrayList<>(BATCH_SIZE);
+        }
+    }
+}
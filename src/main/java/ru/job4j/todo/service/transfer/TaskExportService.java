@@ -0,0 +1,10 @@
+package ru.job4j.todo.service.transfer;
+
+import ru.job4j.todo.model.User;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+public interface TaskExportService {
+    void export(User user, TaskFileFormat format, OutputStream out) throws IOException;
+}
@@ -0,0 +1,31 @@
+package ru.job4j.todo.service.transfer;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+public enum TaskFileFormat {
+    CSV("text/csv", "csv"),
+    NDJSON("application/x-ndjson", "ndjson");
+
+    private final String contentType;
+    private final String extension;
+
+    TaskFileFormat(String contentType, String extension) {
+        this.contentType = contentType;
+        this.extension = extension;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getExtension() {
+        return extension;
+    }
+
+    public static Optional<TaskFileFormat> of(String name) {
+        return Arrays.stream(values())
+                .filter(format -> format.extension.equalsIgnoreCase(name))
+                .findFirst();
+    }
+}
@@ -0,0 +1,11 @@
+package ru.job4j.todo.service.transfer;
+
+import ru.job4j.todo.dto.TaskImportResultDTO;
+import ru.job4j.todo.model.User;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+public interface TaskImportService {
+    TaskImportResultDTO importTasks(User user, TaskFileFormat format, InputStream in) throws IOException;
+}
@@ -0,0 +1,58 @@
+package ru.job4j.todo.configuration;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIf;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+
+import static org.assertj.core.api.Assertions.*;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+        properties = "todo.virtual-threads.enabled=true")
+@EnabledIf("ru.job4j.todo.configuration.VirtualThreadConfiguration#available")
+class VirtualThreadConfigurationTest {
+
+    @Autowired
+    private ServletWebServerApplicationContext context;
+
+    /**
+     * Проверяет сценарий, при котором в режиме виртуальных потоков Tomcat обрабатывает
+     * запросы на виртуальных потоках
+     */
+    @Test
+    void whenVirtualThreadsEnabledThenTomcatExecutorStartsVirtualThreads() throws Exception {
+        Executor executor = ((TomcatWebServer) context.getWebServer()).getTomcat().getConnector()
+                .getProtocolHandler().getExecutor();
+
+        var virtual = CompletableFuture.supplyAsync(
+                () -> VirtualThreadConfiguration.isVirtual(Thread.currentThread()), executor).get();
+
+        assertThat(virtual).isTrue();
+    }
+
+    /**
+     * Проверяет сценарий, при котором исполнитель виртуальных потоков - бин контекста,
+     * который закрывается вместе с контекстом. Закрывается отдельный контекст, а не общий
+     * контекст тестов
+     */
+    @Test
+    void whenContextClosedThenVirtualThreadExecutorIsShutDown() {
+        new ApplicationContextRunner()
+                .withPropertyValues("todo.virtual-threads.enabled=true")
+                .withUserConfiguration(VirtualThreadConfiguration.class)
+                .run(virtualThreadContext -> {
+                    var executor = virtualThreadContext.getBean("virtualThreadExecutor", ExecutorService.class);
+
+                    virtualThreadContext.close();
+
+                    assertThat(executor.isShutdown()).isTrue();
+                });
+    }
+}
@@ -0,0 +1,35 @@
+package ru.job4j.todo.controller;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.job4j.todo.model.User;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class AdminControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    /**
+     * Проверяет, что без {@code todo.admin.enabled=true} служебные адреса недоступны
+     * даже пользователю после входа
+     */
+    @Test
+    void whenAdminDisabledThenStatisticsNotFound() throws Exception {
+        var user = new User();
+        user.setId(-1);
+
+        mockMvc.perform(get("/admin/statistics").sessionAttr("user", user))
+                .andExpect(status().isNotFound());
+        mockMvc.perform(post("/admin/statistics/reset").sessionAttr("user", user))
+                .andExpect(status().isNotFound());
+    }
+}
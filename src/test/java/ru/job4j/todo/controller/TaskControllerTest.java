@@ -4,9 +4,16 @@ import org.assertj.core.api.InstanceOfAssertFactories;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.ui.ConcurrentModel;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.servlet.mvc.support.RedirectAttributesModelMap;
+import ru.job4j.todo.dto.PageDTO;
 import ru.job4j.todo.dto.TaskDTO;
+import ru.job4j.todo.dto.TaskFilterDTO;
 import ru.job4j.todo.model.User;
+import ru.job4j.todo.repository.task.UpdateResult;
 import ru.job4j.todo.service.category.CategoryService;
 import ru.job4j.todo.service.priority.PriorityService;
 import ru.job4j.todo.service.task.TaskService;
@@ -16,8 +23,9 @@ import java.util.*;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
-import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.when;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.*;
 
 class TaskControllerTest {
 
@@ -47,10 +55,10 @@ class TaskControllerTest {
     void whenGetAllThenGetPageWithTasks() {
         var tasks = getTaskDTOS();
         var userArgumentCaptor = ArgumentCaptor.forClass(User.class);
-        when(taskService.findAll(userArgumentCaptor.capture())).thenReturn(tasks);
+        when(taskService.findAll(userArgumentCaptor.capture(), any(TaskFilterDTO.class), isNull())).thenReturn(new PageDTO<>(tasks, "next"));
         var model = new ConcurrentModel();
 
-        var actual = taskController.getAll(model, user);
+        var actual = taskController.getAll(model, user, new TaskFilterDTO(), null, request());
         var actualTasks = model.getAttribute("tasks");
         var actualUser = userArgumentCaptor.getValue();
 
@@ -59,12 +67,69 @@ class TaskControllerTest {
                 .asInstanceOf(InstanceOfAssertFactories.collection(TaskDTO.class))
                         .containsExactlyInAnyOrderElementsOf(tasks);
         assertThat(actualUser).isEqualTo(user);
+        assertThat(model.getAttribute("nextCursor")).isEqualTo("next");
+    }
+
+    private ServletWebRequest request() {
+        return new ServletWebRequest(new MockHttpServletRequest("GET", "/"), new MockHttpServletResponse());
+    }
+
+    /**
+     * Проверяет сценарий, при котором страница с прежней версией данных отвечает 304
+     * без обращения к сервису заданий
+     */
+    @Test
+    void whenGetAllWithCurrentETagThenNotModified() {
+        when(taskService.getVersion(user)).thenReturn("1-v-5");
+        var httpRequest = new MockHttpServletRequest("GET", "/");
+        httpRequest.addHeader("If-None-Match", "\"1-v-5\"");
+        var response = new MockHttpServletResponse();
+
+        var actual = taskController.getAll(new ConcurrentModel(), user, new TaskFilterDTO(), null, new ServletWebRequest(httpRequest, response));
+
+        assertThat(actual).isNull();
+        assertThat(response.getStatus()).isEqualTo(304);
+        verify(taskService, never()).findAll(any(), any(), any());
+    }
+
+    /**
+     * Проверяет сценарий, при котором после изменения данных страница строится заново с новым ETag
+     */
+    @Test
+    void whenGetAllWithOutdatedETagThenGetPageWithNewETag() {
+        when(taskService.getVersion(user)).thenReturn("1-v-6");
+        when(taskService.findAll(eq(user), any(TaskFilterDTO.class), isNull())).thenReturn(new PageDTO<>(getTaskDTOS(), null));
+        var httpRequest = new MockHttpServletRequest("GET", "/");
+        httpRequest.addHeader("If-None-Match", "\"1-v-5\"");
+        var response = new MockHttpServletResponse();
+
+        var actual = taskController.getAll(new ConcurrentModel(), user, new TaskFilterDTO(), null, new ServletWebRequest(httpRequest, response));
+
+        assertThat(actual).isEqualTo("list");
+        assertThat(response.getHeader("ETag")).isEqualTo("\"1-v-6\"");
+    }
+
+    /**
+     * Проверяет сценарий поиска заданий методом {@code search}
+     */
+    @Test
+    void whenSearchThenGetPageWithFoundTasks() {
+        var tasks = getTaskDTOS();
+        when(taskService.search(user, "test", null)).thenReturn(new PageDTO<>(tasks, "20"));
+        var model = new ConcurrentModel();
+
+        var actual = taskController.search(model, user, "test", null, request());
+
+        assertThat(actual).isEqualTo("list");
+        assertThat(model.getAttribute("tasks")).isEqualTo(tasks);
+        assertThat(model.getAttribute("query")).isEqualTo("test");
+        assertThat(model.getAttribute("nextCursor")).isEqualTo("20");
     }
 
     private List<TaskDTO> getTaskDTOS() {
-        return List.of(new TaskDTO(1, "Test1", "Descr1", LocalDateTime.now(), false, 1, "Ivan", 1, "priority1", List.of(), ""),
-                new TaskDTO(2, "Test2", "Descr2", LocalDateTime.now(), true, 2, "Petr", 2, "priority2", List.of(1), "test1"),
-                new TaskDTO(3, "Test3", "Descr3", LocalDateTime.now(), false, 3, "Pavel", 3, "priority3", List.of(1, 2), "test1, test2"));
+        return List.of(new TaskDTO(1, "Test1", "Descr1", LocalDateTime.now(), false, 1, "Ivan", 1, "priority1", List.of(), "", 0),
+                new TaskDTO(2, "Test2", "Descr2", LocalDateTime.now(), true, 2, "Petr", 2, "priority2", List.of(1), "test1", 0),
+                new TaskDTO(3, "Test3", "Descr3", LocalDateTime.now(), false, 3, "Pavel", 3, "priority3", List.of(1, 2), "test1, test2", 0));
     }
 
     /**
@@ -74,10 +139,10 @@ class TaskControllerTest {
     void whenGetDoneThenGetPageWithDoneTasks() {
         var tasks = getTaskDTOS();
         var userArgumentCaptor = ArgumentCaptor.forClass(User.class);
-        when(taskService.findDone(userArgumentCaptor.capture())).thenReturn(tasks);
+        when(taskService.findDone(userArgumentCaptor.capture(), any(TaskFilterDTO.class), isNull())).thenReturn(new PageDTO<>(tasks, "next"));
         var model = new ConcurrentModel();
 
-        var actual = taskController.getDone(model, user);
+        var actual = taskController.getDone(model, user, new TaskFilterDTO(), null, request());
         var actualTasks = model.getAttribute("tasks");
         var actualUser = userArgumentCaptor.getValue();
 
@@ -94,10 +159,10 @@ class TaskControllerTest {
     void whenGetNewThenGetPageWithNewTasks() {
         var tasks = getTaskDTOS();
         var userArgumentCaptor = ArgumentCaptor.forClass(User.class);
-        when(taskService.findNew(userArgumentCaptor.capture())).thenReturn(tasks);
+        when(taskService.findNew(userArgumentCaptor.capture(), any(TaskFilterDTO.class), isNull())).thenReturn(new PageDTO<>(tasks, "next"));
         var model = new ConcurrentModel();
 
-        var actual = taskController.getNew(model, user);
+        var actual = taskController.getNew(model, user, new TaskFilterDTO(), null, request());
         var actualTasks = model.getAttribute("tasks");
         var actualUser = userArgumentCaptor.getValue();
 
@@ -133,13 +198,13 @@ class TaskControllerTest {
     @Test
     void whenGetTaskSuccessfulThenGetPageWithTask() {
         var id = 1;
-        var task = new TaskDTO(id, "Test1", "Descr1", LocalDateTime.now(), false, 1, "Ivan", 1, "priority1", List.of(1), "test1");
+        var task = new TaskDTO(id, "Test1", "Descr1", LocalDateTime.now(), false, 1, "Ivan", 1, "priority1", List.of(1), "test1", 0);
         var intArgCaptor = ArgumentCaptor.forClass(Integer.class);
         var userArgumentCaptor = ArgumentCaptor.forClass(User.class);
         when(taskService.findById(intArgCaptor.capture(), userArgumentCaptor.capture())).thenReturn(Optional.of(task));
         var model = new ConcurrentModel();
 
-        var actual = taskController.getTask(model, id, user);
+        var actual = taskController.getTask(model, id, user, request());
         var actualTask = model.getAttribute("task");
         var actualMode = model.getAttribute("mode");
         var actualId = intArgCaptor.getValue();
@@ -161,7 +226,7 @@ class TaskControllerTest {
         when(taskService.findById(any(Integer.class), any(User.class))).thenReturn(Optional.empty());
         var model = new ConcurrentModel();
 
-        var actual = taskController.getTask(model, id, user);
+        var actual = taskController.getTask(model, id, user, request());
         var actualMessage = model.getAttribute("message");
 
         assertThat(actual).isEqualTo("errors/404");
@@ -175,10 +240,10 @@ class TaskControllerTest {
     void whenDoTaskSuccessfulThenDoTaskAndGetPageWithTasks() {
         var id = 1;
         var intArgCaptor = ArgumentCaptor.forClass(Integer.class);
-        when(taskService.setDoneById(intArgCaptor.capture())).thenReturn(true);
+        when(taskService.setDoneById(intArgCaptor.capture(), eq(user))).thenReturn(true);
         var model = new ConcurrentModel();
 
-        var actual = taskController.doTask(model, id);
+        var actual = taskController.doTask(model, id, user);
         var actualId = intArgCaptor.getValue();
 
         assertThat(actual).isEqualTo("redirect:/");
@@ -191,10 +256,10 @@ class TaskControllerTest {
     @Test
     void whenDoTaskUnSuccessfulThenGetErrorPage() {
         var id = 1;
-        when(taskService.setDoneById(any(Integer.class))).thenReturn(false);
+        when(taskService.setDoneById(any(Integer.class), any(User.class))).thenReturn(false);
         var model = new ConcurrentModel();
 
-        var actual = taskController.doTask(model, id);
+        var actual = taskController.doTask(model, id, user);
         var actualMessage = model.getAttribute("message");
 
         assertThat(actual).isEqualTo("errors/404");
@@ -207,7 +272,7 @@ class TaskControllerTest {
     @Test
     void whenEditTaskSuccessfulThenGetPageWithTask() {
         var id = 1;
-        var task = new TaskDTO(id, "Test1", "Descr1", LocalDateTime.now(), false, 1, "Ivan", 1, "priority1", List.of(1), "test1");
+        var task = new TaskDTO(id, "Test1", "Descr1", LocalDateTime.now(), false, 1, "Ivan", 1, "priority1", List.of(1), "test1", 0);
         var intArgCaptor = ArgumentCaptor.forClass(Integer.class);
         var userArgumentCaptor = ArgumentCaptor.forClass(User.class);
         when(taskService.findById(intArgCaptor.capture(), userArgumentCaptor.capture())).thenReturn(Optional.of(task));
@@ -249,10 +314,10 @@ class TaskControllerTest {
     void whenDeleteTaskSuccessfulThenDeleteTaskAndGetPageWithTasks() {
         var id = 1;
         var intArgCaptor = ArgumentCaptor.forClass(Integer.class);
-        when(taskService.deleteById(intArgCaptor.capture())).thenReturn(true);
+        when(taskService.deleteById(intArgCaptor.capture(), eq(user))).thenReturn(true);
         var model = new ConcurrentModel();
 
-        var actual = taskController.deleteTask(model, id);
+        var actual = taskController.deleteTask(model, id, user);
         var actualId = intArgCaptor.getValue();
 
         assertThat(actual).isEqualTo("redirect:/");
@@ -265,28 +330,74 @@ class TaskControllerTest {
     @Test
     void whenDeleteTaskUnSuccessfulThenGetErrorPage() {
         var id = 1;
-        when(taskService.deleteById(any(Integer.class))).thenReturn(false);
+        when(taskService.deleteById(any(Integer.class), any(User.class))).thenReturn(false);
         var model = new ConcurrentModel();
 
-        var actual = taskController.deleteTask(model, id);
+        var actual = taskController.deleteTask(model, id, user);
         var actualMessage = model.getAttribute("message");
 
         assertThat(actual).isEqualTo("errors/404");
         assertThat(actualMessage).isEqualTo("Не удалось удалить задание");
     }
 
+    /**
+     * Проверяет сценарий выполнения нескольких заданий методом {@code doTasks}
+     */
+    @Test
+    void whenDoTasksThenDoTasksAndGetPageWithTasksAndMessage() {
+        var ids = List.of(1, 2, 3);
+        when(taskService.setDoneByIds(ids, user)).thenReturn(2);
+        var redirectAttributes = new RedirectAttributesModelMap();
+
+        var actual = taskController.doTasks(ids, user, redirectAttributes);
+
+        assertThat(actual).isEqualTo("redirect:/");
+        assertThat(redirectAttributes.getFlashAttributes().get("message")).isEqualTo("Выполнено заданий: 2");
+    }
+
+    /**
+     * Проверяет сценарий удаления нескольких заданий методом {@code deleteTasks}
+     */
+    @Test
+    void whenDeleteTasksThenDeleteTasksAndGetPageWithTasksAndMessage() {
+        var ids = List.of(1, 2);
+        when(taskService.deleteByIds(ids, user)).thenReturn(2);
+        var redirectAttributes = new RedirectAttributesModelMap();
+
+        var actual = taskController.deleteTasks(ids, user, redirectAttributes);
+
+        assertThat(actual).isEqualTo("redirect:/");
+        assertThat(redirectAttributes.getFlashAttributes().get("message")).isEqualTo("Удалено заданий: 2");
+    }
+
+    /**
+     * Проверяет сценарий удаления выполненных заданий, созданных раньше указанного момента,
+     * методом {@code deleteDoneTasks}
+     */
+    @Test
+    void whenDeleteDoneTasksThenDeleteTasksAndGetPageWithTasksAndMessage() {
+        var before = LocalDateTime.of(2024, 1, 1, 10, 0);
+        when(taskService.deleteDoneCreatedBefore(before, user)).thenReturn(5);
+        var redirectAttributes = new RedirectAttributesModelMap();
+
+        var actual = taskController.deleteDoneTasks(before, user, redirectAttributes);
+
+        assertThat(actual).isEqualTo("redirect:/");
+        assertThat(redirectAttributes.getFlashAttributes().get("message")).isEqualTo("Удалено выполненных заданий: 5");
+    }
+
     /**
      * Проверяет успешный сценарий сохранения нового задания методом {@code saveOrUpdate}
      */
     @Test
     void whenSaveSuccessfulThenSaveTaskAndGetPageWithTasks() {
-        var task = new TaskDTO(1, "test1", "descr1", LocalDateTime.now(), false, 1, "Ivan", 1, "priority1", List.of(1), "test1");
+        var task = new TaskDTO(1, "test1", "descr1", LocalDateTime.now(), false, 1, "Ivan", 1, "priority1", List.of(1), "test1", 0);
         var taskArgCaptor = ArgumentCaptor.forClass(TaskDTO.class);
-        when(taskService.save(taskArgCaptor.capture())).thenReturn(true);
+        when(taskService.save(taskArgCaptor.capture(), eq(user))).thenReturn(true);
         var model = new ConcurrentModel();
         var mode = "taskNew";
 
-        var actual = taskController.saveOrUpdate(task, mode, model);
+        var actual = taskController.saveOrUpdate(task, mode, model, user);
         var actualTask = taskArgCaptor.getValue();
 
         assertThat(actual).isEqualTo("redirect:/");
@@ -298,11 +409,11 @@ class TaskControllerTest {
      */
     @Test
     void whenSaveUnSuccessfulThenGetErrorPage() {
-        when(taskService.save(any(TaskDTO.class))).thenReturn(false);
+        when(taskService.save(any(TaskDTO.class), any(User.class))).thenReturn(false);
         var model = new ConcurrentModel();
         var mode = "taskNew";
 
-        var actual = taskController.saveOrUpdate(new TaskDTO(), mode, model);
+        var actual = taskController.saveOrUpdate(new TaskDTO(), mode, model, user);
         var actualMessage = model.getAttribute("message");
 
         assertThat(actual).isEqualTo("errors/404");
@@ -314,13 +425,13 @@ class TaskControllerTest {
      */
     @Test
     void whenUpdateSuccessfulThenUpdateTaskAndGetPageWithTasks() {
-        var task = new TaskDTO(1, "test1", "descr1", LocalDateTime.now(), false, 1, "Ivan", 1, "priority1", List.of(1), "test1");
+        var task = new TaskDTO(1, "test1", "descr1", LocalDateTime.now(), false, 1, "Ivan", 1, "priority1", List.of(1), "test1", 0);
         var taskArgCaptor = ArgumentCaptor.forClass(TaskDTO.class);
-        when(taskService.update(taskArgCaptor.capture())).thenReturn(true);
+        when(taskService.update(taskArgCaptor.capture(), eq(user))).thenReturn(UpdateResult.UPDATED);
         var model = new ConcurrentModel();
         var mode = "taskEdit";
 
-        var actual = taskController.saveOrUpdate(task, mode, model);
+        var actual = taskController.saveOrUpdate(task, mode, model, user);
         var actualTask = taskArgCaptor.getValue();
 
         assertThat(actual).isEqualTo("redirect:/");
@@ -332,14 +443,29 @@ class TaskControllerTest {
      */
     @Test
     void whenUpdateUnSuccessfulThenGetErrorPage() {
-        when(taskService.update(any(TaskDTO.class))).thenReturn(false);
+        when(taskService.update(any(TaskDTO.class), any(User.class))).thenReturn(UpdateResult.FAILED);
         var model = new ConcurrentModel();
         var mode = "taskEdit";
 
-        var actual = taskController.saveOrUpdate(new TaskDTO(), mode, model);
+        var actual = taskController.saveOrUpdate(new TaskDTO(), mode, model, user);
         var actualMessage = model.getAttribute("message");
 
         assertThat(actual).isEqualTo("errors/404");
         assertThat(actualMessage).isEqualTo("Не удалось обновить задание");
     }
-}
\ No newline at end of file
+
+    /**
+     * Проверяет сценарий конфликта версий при обновлении задания методом {@code saveOrUpdate}
+     */
+    @Test
+    void whenUpdateConflictThenGetErrorPageWithConflictMessage() {
+        when(taskService.update(any(TaskDTO.class), any(User.class))).thenReturn(UpdateResult.CONFLICT);
+        var model = new ConcurrentModel();
+
+        var actual = taskController.saveOrUpdate(new TaskDTO(), "taskEdit", model, user);
+
+        assertThat(actual).isEqualTo("errors/404");
+        assertThat(model.getAttribute("message"))
+                .isEqualTo("Задание уже изменено в другом окне, откройте его заново");
+    }
+}
@@ -0,0 +1,176 @@
+package ru.job4j.todo.filter;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.web.servlet.HandlerMapping;
+import ru.job4j.todo.configuration.StatementBudgetProperties;
+import ru.job4j.todo.model.User;
+import ru.job4j.todo.repository.CrudRepository;
+import ru.job4j.todo.repository.ReferenceDataCache;
+import ru.job4j.todo.repository.task.TaskFilter;
+import ru.job4j.todo.repository.task.TaskStore;
+
+import javax.servlet.FilterChain;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.multipart;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+class StatementBudgetFilterTest {
+
+    /**
+     * Запрос к каждому адресу с бюджетом из application.properties
+     */
+    private static final Map<String, MockHttpServletRequestBuilder> ENDPOINT_REQUESTS = Map.of(
+            "/", get("/"),
+            "/done", get("/done"),
+            "/new", get("/new"),
+            "/search", get("/search").param("q", "task"),
+            "/task/{id}", get("/task/1"),
+            "/task/edit/{id}", get("/task/edit/1"),
+            "/tasks/import", multipart("/tasks/import")
+                    .file(new MockMultipartFile("file", "tasks.csv", "text/csv", "title\n".getBytes())));
+
+    @Autowired
+    private SessionFactory sf;
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private StatementBudgetProperties configuredProperties;
+    @Autowired
+    private ReferenceDataCache referenceDataCache;
+    private SimpleMeterRegistry registry;
+    private TaskStore store;
+    private StatementBudgetProperties properties;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        store = new TaskStore(new CrudRepository(sf, registry));
+        properties = new StatementBudgetProperties();
+        properties.setEndpoints(Map.of("/task/{id}", 1));
+    }
+
+    private FilterChain queries(int count) {
+        return (request, response) -> {
+            request.setAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE, "/task/{id}");
+            for (int i = 0; i < count; i++) {
+                store.findAll(-1, TaskFilter.ALL, null, 10);
+            }
+        };
+    }
+
+    /**
+     * Проверяет, что запросы HTTP-запроса в пределах бюджета считаются на уровне JDBC
+     * и попадают в метрику с шаблоном адреса обработчика
+     */
+    @Test
+    void whenWithinBudgetThenStatementsRecordedByPattern() throws Exception {
+        properties.setFailOnExceed(true);
+        var filter = new StatementBudgetFilter(properties, registry);
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/task/1"), new MockHttpServletResponse(), queries(1));
+
+        var statements = registry.find("todo.request.statements").tag("uri", "/task/{id}").summary();
+        assertThat(statements.count()).isEqualTo(1);
+        assertThat(statements.totalAmount()).isEqualTo(1);
+        assertThat(registry.find("todo.request.rows").tag("uri", "/task/{id}").summary()).isNotNull();
+        assertThat(registry.find("todo.request.statement-budget.exceeded").counter()).isNull();
+    }
+
+    /**
+     * Проверяет сценарий превышения бюджета: счетчик превышений растет,
+     * а с {@code fail-on-exceed} запрос завершается исключением
+     */
+    @Test
+    void whenBudgetExceededThenCountedAndFailsIfConfigured() throws Exception {
+        var filter = new StatementBudgetFilter(properties, registry);
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/task/1"), new MockHttpServletResponse(), queries(2));
+        properties.setFailOnExceed(true);
+
+        assertThatThrownBy(() -> filter.doFilter(new MockHttpServletRequest("GET", "/task/1"),
+                new MockHttpServletResponse(), queries(2)))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("/task/{id}");
+        assertThat(registry.find("todo.request.statement-budget.exceeded").tag("uri", "/task/{id}")
+                .counter().count()).isEqualTo(2);
+    }
+
+    /**
+     * Проверяет, что запросы вне HTTP-запроса не учитываются и не попадают в следующий запрос
+     */
+    @Test
+    void whenQueriesOutsideRequestThenNotCounted() throws Exception {
+        properties.setFailOnExceed(true);
+        var filter = new StatementBudgetFilter(properties, registry);
+        store.findAll(-1, TaskFilter.ALL, null, 10);
+
+        filter.doFilter(new MockHttpServletRequest("GET", "/task/1"), new MockHttpServletResponse(), queries(0));
+
+        assertThat(registry.find("todo.request.statements").summary().totalAmount()).isZero();
+    }
+
+    /**
+     * Проверяет, что каждый ключ {@code todo.statement-budget.endpoints} совпадает с шаблоном адреса,
+     * который находит DispatcherServlet для реального запроса, иначе бюджет не применяется
+     */
+    @Test
+    void whenRequestThroughDispatcherThenPatternMatchesConfiguredEndpoint() throws Exception {
+        var user = new User();
+        user.setId(-1);
+        user.setTimezone("UTC");
+
+        assertThat(ENDPOINT_REQUESTS).containsOnlyKeys(configuredProperties.getEndpoints().keySet());
+        for (var endpoint : ENDPOINT_REQUESTS.entrySet()) {
+            var result = mockMvc.perform(endpoint.getValue().sessionAttr("user", user)).andReturn();
+
+            assertThat(StatementBudgetFilter.endpoint(result.getRequest()))
+                    .as(endpoint.getKey())
+                    .isEqualTo(endpoint.getKey());
+            assertThat(result.getResponse().getStatus()).as(endpoint.getKey()).isLessThan(500);
+        }
+    }
+
+    /**
+     * Проверяет, что при запросе через DispatcherServlet с {@code fail-on-exceed} превышение бюджета
+     * обнаруживается перехватчиком после обработчика, до отрисовки страницы и отправки ответа
+     */
+    @Test
+    void whenBudgetExceededThroughDispatcherThenFailsBeforeRendering() {
+        var user = new User();
+        user.setId(-1);
+        user.setTimezone("UTC");
+        var budget = configuredProperties.getEndpoints().get("/");
+        var failOnExceed = configuredProperties.isFailOnExceed();
+        configuredProperties.getEndpoints().put("/", 1);
+        configuredProperties.setFailOnExceed(true);
+        referenceDataCache.evictAll();
+        try {
+            var error = catchThrowable(() -> mockMvc.perform(get("/").sessionAttr("user", user)));
+
+            assertThat(NestedExceptionUtils.getRootCause(error))
+                    .isInstanceOf(IllegalStateException.class)
+                    .hasMessageContaining("(/)")
+                    .satisfies(e -> assertThat(e.getStackTrace())
+                            .anyMatch(element -> element.getMethodName().contains("postHandle")));
+        } finally {
+            configuredProperties.getEndpoints().put("/", budget);
+            configuredProperties.setFailOnExceed(failOnExceed);
+        }
+    }
+}
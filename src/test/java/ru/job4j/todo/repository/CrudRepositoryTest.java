@@ -0,0 +1,211 @@
+package ru.job4j.todo.repository;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hibernate.FlushMode;
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.hibernate.jdbc.Work;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.job4j.todo.model.Task;
+import ru.job4j.todo.model.User;
+import ru.job4j.todo.repository.task.TaskFilter;
+import ru.job4j.todo.repository.task.TaskStore;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@SpringBootTest
+class CrudRepositoryTest {
+
+    @Autowired
+    private SessionFactory sf;
+    private SimpleMeterRegistry registry;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+    }
+
+    /**
+     * Проверяет, что метрики запроса помечаются публичным методом репозитория,
+     * а не вспомогательным методом, из которого вызван {@link CrudRepository}
+     */
+    @Test
+    void whenStoreQueriesThenMetricsTaggedByStoreMethod() {
+        var store = new TaskStore(new CrudRepository(sf, registry));
+
+        store.findAll(-1, TaskFilter.ALL, null, 10);
+
+        var timer = registry.find("todo.repository.query")
+                .tags("method", "TaskStore.findAll", "readOnly", "true", "outcome", "success").timer();
+        assertThat(timer).isNotNull();
+        assertThat(timer.count()).isEqualTo(1);
+        assertThat(registry.find("todo.repository.transactions")
+                .tags("method", "TaskStore.findAll", "outcome", "commit").counter().count()).isEqualTo(1);
+        assertThat(registry.find("todo.repository.rows").tag("method", "TaskStore.findAll")
+                .summary().totalAmount()).isZero();
+        assertThat(registry.find("todo.repository.session.open").tag("method", "TaskStore.findAll").timer())
+                .isNotNull();
+    }
+
+    /**
+     * Проверяет, что неуспешная транзакция на запись учитывается как откат,
+     * а время сброса сессии - только для транзакций на запись
+     */
+    @Test
+    void whenWriteFailsThenRollbackCounted() {
+        Session spySession = spy(sf.openSession());
+        doThrow(new RuntimeException()).when(spySession).persist(any());
+        var spySf = spy(sf);
+        when(spySf.openSession()).thenReturn(spySession);
+        var store = new TaskStore(new CrudRepository(spySf, registry));
+
+        store.save(new Task());
+
+        assertThat(registry.find("todo.repository.transactions")
+                .tags("method", "TaskStore.save", "outcome", "rollback").counter().count()).isEqualTo(1);
+        assertThat(registry.find("todo.repository.query")
+                .tags("method", "TaskStore.save", "readOnly", "false", "outcome", "error").timer().count())
+                .isEqualTo(1);
+        assertThat(registry.find("todo.repository.session.flush").timer()).isNull();
+    }
+
+    /**
+     * Проверяет сценарий нескольких чтений в {@link UnitOfWork}: все они выполняются
+     * на одном соединении из пула
+     */
+    @Test
+    void whenReadsInUnitOfWorkThenOneConnection() {
+        var store = new TaskStore(new CrudRepository(sf, registry));
+        var before = sf.getStatistics().getConnectCount();
+
+        int connections;
+        try (var unitOfWork = UnitOfWork.begin(sf)) {
+            store.findById(-1, -1);
+            store.findAll(-1, TaskFilter.ALL, null, 10);
+            store.findAll(-1, TaskFilter.DONE, null, 10);
+            connections = unitOfWork.connections();
+        }
+
+        assertThat(connections).isEqualTo(1);
+        assertThat(sf.getStatistics().getConnectCount() - before).isEqualTo(1);
+    }
+
+    /**
+     * Проверяет сценарий записи внутри {@link UnitOfWork}: запись идет в своей транзакции,
+     * а следующее чтение видит изменение, а не сущность из общей сессии
+     */
+    @Test
+    void whenWriteInUnitOfWorkThenNextReadSeesChange() {
+        var store = new TaskStore(new CrudRepository(sf, registry));
+        var task = addUserWithTask();
+        var userId = task.getUser().getId();
+
+        try (var unitOfWork = UnitOfWork.begin(sf)) {
+            assertThat(store.findById(userId, task.getId())).get().extracting(Task::isDone).isEqualTo(false);
+            assertThat(store.setDoneById(userId, task.getId())).isTrue();
+            assertThat(store.findById(userId, task.getId())).get().extracting(Task::isDone).isEqualTo(true);
+            assertThat(unitOfWork.connections()).isEqualTo(2);
+        } finally {
+            deleteTasksAndUsers();
+        }
+    }
+
+    private Task addUserWithTask() {
+        var user = new User();
+        user.setName("read-only");
+        user.setLogin("read-only");
+        user.setPassword("password");
+        user.setTimezone("UTC");
+        var task = new Task(0, "title", "description", null, false, user, null, Set.of(), 0);
+        try (Session session = sf.openSession()) {
+            var tx = session.beginTransaction();
+            session.persist(user);
+            session.persist(task);
+            tx.commit();
+        }
+        return task;
+    }
+
+    private void deleteTasksAndUsers() {
+        try (Session session = sf.openSession()) {
+            var tx = session.beginTransaction();
+            session.createQuery("DELETE Task").executeUpdate();
+            session.createQuery("DELETE User").executeUpdate();
+            tx.commit();
+        }
+    }
+
+    /**
+     * Проверяет, что {@code query} и {@code optional} загружают сущности только для чтения
+     * в сессии с {@link FlushMode#MANUAL}: изменение загруженного задания не дает UPDATE
+     */
+    @Test
+    void whenQueryThenEntitiesReadOnlyAndChangesNotFlushed() {
+        var crudRepository = new CrudRepository(sf, registry);
+        var user = addUserWithTask().getUser();
+        var readOnly = new ArrayList<Boolean>();
+        var flushModes = new ArrayList<FlushMode>();
+        var updatesBefore = sf.getStatistics().getEntityUpdateCount();
+        try {
+            var tasks = crudRepository.query(session -> {
+                var list = session.createQuery("from Task where user.id = :userId", Task.class)
+                        .setParameter("userId", user.getId()).list();
+                readOnly.add(session.isReadOnly(list.get(0)));
+                flushModes.add(session.getHibernateFlushMode());
+                list.get(0).setTitle("changed by query");
+                return list;
+            });
+            var task = crudRepository.optional(session -> {
+                var found = session.get(Task.class, tasks.get(0).getId());
+                readOnly.add(session.isReadOnly(found));
+                flushModes.add(session.getHibernateFlushMode());
+                found.setTitle("changed by optional");
+                return found;
+            });
+
+            assertThat(readOnly).containsExactly(true, true);
+            assertThat(flushModes).containsExactly(FlushMode.MANUAL, FlushMode.MANUAL);
+            assertThat(sf.getStatistics().getEntityUpdateCount() - updatesBefore).isZero();
+            assertThat(crudRepository.query("from Task where id = :id", Task.class, Map.of("id", task.get().getId())))
+                    .extracting(Task::getTitle).containsExactly("title");
+        } finally {
+            deleteTasksAndUsers();
+        }
+    }
+
+    /**
+     * Проверяет, что транзакция только на чтение помечает JDBC-соединение как read-only
+     * до начала транзакции
+     */
+    @Test
+    void whenQueryThenConnectionSetReadOnly() throws Exception {
+        Session spySession = spy(sf.openSession());
+        var spySf = spy(sf);
+        when(spySf.openSession()).thenReturn(spySession);
+        var crudRepository = new CrudRepository(spySf, registry);
+        var work = ArgumentCaptor.forClass(Work.class);
+        var connection = mock(Connection.class);
+
+        crudRepository.query(session -> List.of());
+
+        var order = inOrder(spySession);
+        order.verify(spySession).setDefaultReadOnly(true);
+        order.verify(spySession).setHibernateFlushMode(FlushMode.MANUAL);
+        order.verify(spySession).doWork(work.capture());
+        order.verify(spySession).beginTransaction();
+        work.getValue().execute(connection);
+        verify(connection).setReadOnly(true);
+    }
+}
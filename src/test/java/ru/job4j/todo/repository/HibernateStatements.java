@@ -0,0 +1,22 @@
+package ru.job4j.todo.repository;
+
+import org.hibernate.SessionFactory;
+
+/**
+ * Подсчет SQL-запросов в тестах репозиториев по статистике Hibernate.
+ */
+final class HibernateStatements {
+
+    private HibernateStatements() {
+    }
+
+    /**
+     * Число SQL-запросов, подготовленных за время действия
+     */
+    static long statements(SessionFactory sf, Runnable action) {
+        var statistics = sf.getStatistics();
+        var before = statistics.getPrepareStatementCount();
+        action.run();
+        return statistics.getPrepareStatementCount() - before;
+    }
+}
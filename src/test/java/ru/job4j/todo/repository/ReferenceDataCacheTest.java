@@ -0,0 +1,134 @@
+package ru.job4j.todo.repository;
+
+import org.hibernate.Session;
+import org.hibernate.SessionFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.job4j.todo.model.Category;
+import ru.job4j.todo.model.Priority;
+import ru.job4j.todo.repository.category.CategoryRepository;
+import ru.job4j.todo.repository.priority.PriorityRepository;
+
+import static org.assertj.core.api.Assertions.*;
+import static ru.job4j.todo.repository.HibernateStatements.statements;
+
+@SpringBootTest
+class ReferenceDataCacheTest {
+
+    @Autowired
+    private SessionFactory sf;
+    @Autowired
+    private PriorityRepository priorityRepository;
+    @Autowired
+    private CategoryRepository categoryRepository;
+    @Autowired
+    private ReferenceDataCache referenceDataCache;
+
+    @BeforeEach
+    void setUp() {
+        clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        clear();
+    }
+
+    private void clear() {
+        try (Session session = sf.openSession()) {
+            var tx = session.beginTransaction();
+            session.createQuery("DELETE Task").executeUpdate();
+            session.createQuery("DELETE Priority").executeUpdate();
+            session.createQuery("DELETE Category").executeUpdate();
+            tx.commit();
+        }
+        referenceDataCache.evictAll();
+    }
+
+    private Priority addPriority() {
+        var priority = new Priority();
+        priority.setName("high");
+        priority.setPosition(1);
+        try (Session session = sf.openSession()) {
+            var tx = session.beginTransaction();
+            session.persist(priority);
+            session.persist(new Category(0, "work"));
+            tx.commit();
+        }
+        return priority;
+    }
+
+    /**
+     * Проверяет, что повторные {@code findAll} и {@code findById} читают базу один раз
+     */
+    @Test
+    void whenFindRepeatedlyThenDatabaseQueriedOnce() {
+        var priority = addPriority();
+
+        assertThat(statements(sf, () -> {
+            priorityRepository.findAll();
+            priorityRepository.findAll();
+        })).isEqualTo(1);
+        assertThat(statements(sf, () -> {
+            priorityRepository.findById(priority.getId());
+            priorityRepository.findById(priority.getId());
+        })).isEqualTo(1);
+        assertThat(statements(sf, () -> {
+            categoryRepository.findAll();
+            categoryRepository.findAll();
+        })).isEqualTo(1);
+        assertThat(priorityRepository.findById(priority.getId())).contains(priority);
+        assertThat(categoryRepository.findAll()).extracting(Category::getName).containsExactly("work");
+    }
+
+    /**
+     * Проверяет, что сброс кэша через {@link ReferenceDataCache} заставляет перечитать справочник
+     */
+    @Test
+    void whenEvictThenReloadedFromDatabase() {
+        var priority = addPriority();
+        priorityRepository.findAll();
+        priorityRepository.findById(priority.getId());
+        categoryRepository.findAll();
+
+        referenceDataCache.evictPriorities();
+
+        assertThat(statements(sf, () -> {
+            priorityRepository.findAll();
+            priorityRepository.findById(priority.getId());
+        })).isEqualTo(2);
+        assertThat(statements(sf, categoryRepository::findAll)).isZero();
+
+        referenceDataCache.evictCategories();
+
+        assertThat(statements(sf, categoryRepository::findAll)).isEqualTo(1);
+        assertThat(statements(sf, priorityRepository::findAll)).isZero();
+    }
+
+    /**
+     * Проверяет, что пустые результаты не кэшируются: данные, добавленные позже, сразу видны
+     */
+    @Test
+    void whenResultEmptyThenNotCached() {
+        assertThat(statements(sf, () -> {
+            assertThat(priorityRepository.findAll()).isEmpty();
+            assertThat(priorityRepository.findAll()).isEmpty();
+        })).isEqualTo(2);
+        assertThat(statements(sf, () -> {
+            assertThat(priorityRepository.findById(-1)).isEmpty();
+            assertThat(priorityRepository.findById(-1)).isEmpty();
+        })).isEqualTo(2);
+        assertThat(statements(sf, () -> {
+            assertThat(categoryRepository.findAll()).isEmpty();
+            assertThat(categoryRepository.findAll()).isEmpty();
+        })).isEqualTo(2);
+
+        var priority = addPriority();
+
+        assertThat(priorityRepository.findAll()).containsExactly(priority);
+        assertThat(categoryRepository.findAll()).extracting(Category::getName).containsExactly("work");
+    }
+}
@@ -1,5 +1,6 @@
 package ru.job4j.todo.repository;
 
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.hibernate.Session;
 import org.hibernate.SessionFactory;
 import org.junit.jupiter.api.AfterEach;
@@ -7,24 +8,37 @@ import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
+import ru.job4j.todo.dto.TaskDTO;
+import ru.job4j.todo.dto.TaskExportDTO;
+import ru.job4j.todo.dto.TaskRowDTO;
 import ru.job4j.todo.model.Category;
 import ru.job4j.todo.model.Priority;
 import ru.job4j.todo.model.Task;
 import ru.job4j.todo.model.User;
 import ru.job4j.todo.repository.task.Store;
+import ru.job4j.todo.repository.task.TaskCursor;
+import ru.job4j.todo.repository.task.TaskFilter;
 import ru.job4j.todo.repository.task.TaskStore;
+import ru.job4j.todo.repository.task.UpdateResult;
 import ru.job4j.todo.repository.user.SimpleUserRepository;
 import ru.job4j.todo.repository.user.UserRepository;
+import ru.job4j.todo.service.task.SimpleTaskService;
+import ru.job4j.todo.service.task.TaskVersions;
 
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
+import static ru.job4j.todo.repository.HibernateStatements.statements;
 
 @SpringBootTest
 class TaskStoreTest {
@@ -33,6 +47,7 @@ class TaskStoreTest {
     private static Store store;
     private static UserRepository userRepository;
     private static List<Task> tasks;
+    private static Task foreignTask;
     private static List<User> users;
     private static List<Priority> priorities;
     private static List<Category> categories;
@@ -40,18 +55,16 @@ class TaskStoreTest {
     @BeforeAll
     public static void setUp(@Autowired SessionFactory awSf) {
         sf = awSf;
-        var crudRepository = new CrudRepository(sf);
+        var crudRepository = new CrudRepository(sf, new SimpleMeterRegistry());
         store = new TaskStore(crudRepository);
         userRepository = new SimpleUserRepository(crudRepository);
     }
 
     @AfterEach
     public void clear() {
-        for (Task task : store.findAll()) {
-            store.deleteById(task.getId());
-        }
         try (Session session = sf.openSession()) {
             var tx = session.beginTransaction();
+            session.createQuery("DELETE Task").executeUpdate();
             session.createQuery("DELETE User").executeUpdate();
             session.createQuery("DELETE Priority").executeUpdate();
             session.createQuery("DELETE Category").executeUpdate();
@@ -60,20 +73,40 @@ class TaskStoreTest {
     }
 
     /**
-     * Проверяет сценарий возврата данных всех заданий методом {@code findAll}
+     * Проверяет сценарий возврата данных всех заданий пользователя методом {@code findAll}
      */
     @Test
     public void whenFindAllThenGetAllTasksData() {
         addTasks();
 
-        var actualTasks = store.findAll();
+        var actualTasks = store.findAll(ownerId(), TaskFilter.ALL, null, Integer.MAX_VALUE);
 
         assertThat(actualTasks).usingRecursiveComparison()
                 .withComparatorForType(
                         Comparator.comparing(o -> o.truncatedTo(ChronoUnit.SECONDS)),
                         LocalDateTime.class)
                 .ignoringCollectionOrder()
-                .isEqualTo(tasks);
+                .isEqualTo(rows(tasks));
+    }
+
+    /**
+     * Проверяет сценарий постраничного возврата заданий методом {@code findAll}:
+     * следующая страница начинается после курсора {@code (created, id)}
+     */
+    @Test
+    public void whenFindAllByPagesThenGetTasksInCreatedOrder() {
+        addTasks();
+        var expected = tasks.stream()
+                .sorted(Comparator.comparing(Task::getCreated).thenComparing(Task::getId))
+                .map(Task::getId)
+                .toList();
+
+        var firstPage = List.copyOf(store.findAll(ownerId(), TaskFilter.ALL, null, 3));
+        var last = firstPage.get(firstPage.size() - 1);
+        var secondPage = store.findAll(ownerId(), TaskFilter.ALL, new TaskCursor(last.created(), last.id()), 3);
+
+        assertThat(firstPage).extracting(TaskRowDTO::id).containsExactlyElementsOf(expected.subList(0, 3));
+        assertThat(secondPage).extracting(TaskRowDTO::id).containsExactlyElementsOf(expected.subList(3, 4));
     }
 
     private void addTasks() {
@@ -110,52 +143,141 @@ class TaskStoreTest {
             tx.commit();
         }
         tasks = List.of(new Task(0, "task1", "descr1", LocalDateTime.now(), false, users.get(0),
-                        priorities.get(0),                        List.of(categories.get(0))),
-                new Task(0, "task2", "descr2", LocalDateTime.now(), false, users.get(1),
-                        priorities.get(1), List.of(categories.get(0), categories.get(1))),
-                new Task(0, "task3", "descr3", LocalDateTime.now(), true, users.get(2),
-                        priorities.get(2), List.of(categories.get(0), categories.get(1), categories.get(2))),
-                new Task(0, "task4", "descr4", LocalDateTime.now(), true, users.get(3),
-                        priorities.get(3), List.of(categories.get(3))));
+                        priorities.get(0), Set.of(categories.get(0)), 0),
+                new Task(0, "task2", "descr2", LocalDateTime.now(), false, users.get(0),
+                        priorities.get(1), Set.of(categories.get(0), categories.get(1)), 0),
+                new Task(0, "task3", "descr3", LocalDateTime.now(), true, users.get(0),
+                        priorities.get(2), Set.of(categories.get(0), categories.get(1), categories.get(2)), 0),
+                new Task(0, "task4", "descr4", LocalDateTime.now(), true, users.get(0),
+                        priorities.get(3), Set.of(categories.get(3)), 0));
         for (Task task : tasks) {
             store.save(task);
         }
+        foreignTask = new Task(0, "foreign", "foreign descr", LocalDateTime.now(), true, users.get(1),
+                priorities.get(1), Set.of(categories.get(1)), 0);
+        store.save(foreignTask);
+    }
+
+    private int ownerId() {
+        return users.get(0).getId();
+    }
+
+    private static List<TaskRowDTO> rows(Collection<Task> tasks) {
+        return tasks.stream()
+                .map(task -> new TaskRowDTO(task.getId(), task.getTitle(), task.getCreated(), task.isDone(),
+                        task.getPriority().getId(), task.getPriority().getName(),
+                        task.getCategories().stream().map(Category::getName).sorted()
+                                .collect(Collectors.joining(", "))))
+                .toList();
+    }
+
+    /**
+     * Проверяет сценарий отбора заданий по категориям методом {@code findAll}: задание с несколькими
+     * подходящими категориями возвращается один раз, режим "все" требует каждую категорию
+     */
+    @Test
+    void whenFindAllByCategoriesThenGetEachTaskOnce() {
+        addTasks();
+        var categoryIds = Set.of(categories.get(0).getId(), categories.get(1).getId());
+
+        var any = store.findAll(ownerId(), new TaskFilter(null, Set.of(), categoryIds, false, null, null),
+                null, Integer.MAX_VALUE);
+        var all = store.findAll(ownerId(), new TaskFilter(null, Set.of(), categoryIds, true, null, null),
+                null, Integer.MAX_VALUE);
+
+        assertThat(any).extracting(TaskRowDTO::id)
+                .containsExactly(tasks.get(0).getId(), tasks.get(1).getId(), tasks.get(2).getId());
+        assertThat(all).extracting(TaskRowDTO::id)
+                .containsExactly(tasks.get(1).getId(), tasks.get(2).getId());
+    }
+
+    /**
+     * Проверяет сценарий отбора заданий по состоянию, приоритетам и периоду создания методом {@code findAll}
+     */
+    @Test
+    void whenFindAllByDonePriorityAndCreatedThenGetMatchingTasks() {
+        addTasks();
+        var priorityIds = Set.of(priorities.get(0).getId(), priorities.get(3).getId());
+        var tomorrow = LocalDateTime.now().plusDays(1);
+
+        var donePriority = store.findAll(ownerId(), new TaskFilter(true, priorityIds, Set.of(), false, null, null),
+                null, Integer.MAX_VALUE);
+        var createdBefore = store.findAll(ownerId(), new TaskFilter(null, Set.of(), Set.of(), false, null, tomorrow),
+                null, Integer.MAX_VALUE);
+        var createdFrom = store.findAll(ownerId(), new TaskFilter(null, Set.of(), Set.of(), false, tomorrow, null),
+                null, Integer.MAX_VALUE);
+
+        assertThat(donePriority).extracting(TaskRowDTO::id).containsExactly(tasks.get(3).getId());
+        assertThat(createdBefore).hasSize(tasks.size());
+        assertThat(createdFrom).isEmpty();
+    }
+
+    /**
+     * Проверяет сценарий поиска заданий пользователя методом {@code search}: все слова запроса
+     * ищутся без учета регистра в названии и описании, задания другого пользователя не находятся
+     */
+    @Test
+    void whenSearchThenGetOwnTasksContainingAllWords() {
+        addTasks();
+
+        var byDescription = store.search(ownerId(), "DESCR", 0, Integer.MAX_VALUE);
+        var byTitleAndDescription = store.search(ownerId(), "task2  descr2", 0, Integer.MAX_VALUE);
+        var secondPage = store.search(ownerId(), "descr", 3, Integer.MAX_VALUE);
+
+        assertThat(byDescription).extracting(TaskRowDTO::id)
+                .containsExactlyInAnyOrderElementsOf(tasks.stream().map(Task::getId).toList());
+        assertThat(byTitleAndDescription).extracting(TaskRowDTO::id).containsExactly(tasks.get(1).getId());
+        assertThat(secondPage).hasSize(1);
     }
 
     /**
-     * Проверяет сценарий возврата данных выполненных заданий методом {@code findDone}
+     * Проверяет сценарий, при котором символы шаблона LIKE в запросе ищутся как обычные символы
+     */
+    @Test
+    void whenSearchWithLikeWildcardsThenGetNothing() {
+        addTasks();
+
+        var actual = store.search(ownerId(), "task_ %", 0, Integer.MAX_VALUE);
+        var blank = store.search(ownerId(), "   ", 0, Integer.MAX_VALUE);
+
+        assertThat(actual).isEmpty();
+        assertThat(blank).isEmpty();
+    }
+
+    /**
+     * Проверяет сценарий возврата данных выполненных заданий пользователя методом {@code findDone}
      */
     @Test
     void whenFindDoneThenGetDoneTasksData() {
         addTasks();
         var expectedTasks = tasks.stream().filter(Task::isDone).toList();
 
-        var actualTasks = store.findDone();
+        var actualTasks = store.findAll(ownerId(), TaskFilter.DONE, null, Integer.MAX_VALUE);
 
         assertThat(actualTasks).usingRecursiveComparison()
                 .withComparatorForType(
                         Comparator.comparing(o -> o.truncatedTo(ChronoUnit.SECONDS)),
                         LocalDateTime.class)
                 .ignoringCollectionOrder()
-                .isEqualTo(expectedTasks);
+                .isEqualTo(rows(expectedTasks));
     }
 
     /**
-     * Проверяет сценарий возврата данных новых заданий методом {@code findNew}
+     * Проверяет сценарий возврата данных новых заданий пользователя методом {@code findNew}
      */
     @Test
     void whenFindNewThenGetNewTasksData() {
         addTasks();
         var expectedTasks = tasks.stream().filter(task -> !task.isDone()).toList();
 
-        var actualTasks = store.findNew();
+        var actualTasks = store.findAll(ownerId(), TaskFilter.NEW, null, Integer.MAX_VALUE);
 
         assertThat(actualTasks).usingRecursiveComparison()
                 .withComparatorForType(
                         Comparator.comparing(o -> o.truncatedTo(ChronoUnit.SECONDS)),
                         LocalDateTime.class)
                 .ignoringCollectionOrder()
-                .isEqualTo(expectedTasks);
+                .isEqualTo(rows(expectedTasks));
     }
 
     /**
@@ -166,7 +288,7 @@ class TaskStoreTest {
         addTasks();
         var expectedTask = tasks.get(tasks.size() - 1);
 
-        var actualTask = store.findById(expectedTask.getId());
+        var actualTask = store.findById(ownerId(), expectedTask.getId());
 
         assertThat(actualTask).isNotEmpty();
         assertThat(actualTask.get()).usingRecursiveComparison()
@@ -184,22 +306,37 @@ class TaskStoreTest {
         addTasks();
         var id = -1;
 
-        var actualTask = store.findById(id);
+        var actualTask = store.findById(ownerId(), id);
+
+        assertThat(actualTask).isEmpty();
+    }
+
+    /**
+     * Проверяет сценарий возврата методом {@code findById} задания другого пользователя:
+     * задание не находится
+     */
+    @Test
+    void whenFindByIdForeignTaskThenGetEmpty() {
+        addTasks();
+
+        var actualTask = store.findById(ownerId(), foreignTask.getId());
 
         assertThat(actualTask).isEmpty();
     }
 
     /**
-     * Проверяет успешный сценарий выполнения задания методом {@code setDoneById}
+     * Проверяет успешный сценарий выполнения задания методом {@code setDoneById}:
+     * версия задания увеличивается
      */
     @Test
     void whenSetDoneByIdSuccessfulThenGetTrue() {
         addTasks();
         var task = tasks.stream().filter(t -> !t.isDone()).findFirst().orElse(new Task());
         task.setDone(true);
+        task.setVersion(task.getVersion() + 1);
 
-        var wasSetDone = store.setDoneById(task.getId());
-        var actualTask = store.findById(task.getId());
+        var wasSetDone = store.setDoneById(ownerId(), task.getId());
+        var actualTask = store.findById(ownerId(), task.getId());
 
         assertThat(wasSetDone).isTrue();
         assertThat(actualTask).isNotEmpty();
@@ -218,8 +355,8 @@ class TaskStoreTest {
         addTasks();
         var id = -1;
 
-        var wasSetDone = store.setDoneById(id);
-        var actualTasks = store.findAll();
+        var wasSetDone = store.setDoneById(ownerId(), id);
+        var actualTasks = store.findAll(ownerId(), TaskFilter.ALL, null, Integer.MAX_VALUE);
 
         assertThat(wasSetDone).isFalse();
         assertThat(actualTasks).usingRecursiveComparison()
@@ -227,7 +364,7 @@ class TaskStoreTest {
                         Comparator.comparing(o -> o.truncatedTo(ChronoUnit.SECONDS)),
                         LocalDateTime.class)
                 .ignoringCollectionOrder()
-                .isEqualTo(tasks);
+                .isEqualTo(rows(tasks));
     }
 
     /**
@@ -239,8 +376,8 @@ class TaskStoreTest {
         var id = tasks.get(tasks.size() - 1).getId();
         var expectedTasks = tasks.stream().filter(task -> task.getId() != id).toList();
 
-        var wasDeleted = store.deleteById(id);
-        var actualTasks = store.findAll();
+        var wasDeleted = store.deleteById(ownerId(), id);
+        var actualTasks = store.findAll(ownerId(), TaskFilter.ALL, null, Integer.MAX_VALUE);
 
         assertThat(wasDeleted).isTrue();
         assertThat(actualTasks).usingRecursiveComparison()
@@ -248,7 +385,7 @@ class TaskStoreTest {
                         Comparator.comparing(o -> o.truncatedTo(ChronoUnit.SECONDS)),
                         LocalDateTime.class)
                 .ignoringCollectionOrder()
-                .isEqualTo(expectedTasks);
+                .isEqualTo(rows(expectedTasks));
     }
 
     /**
@@ -259,8 +396,8 @@ class TaskStoreTest {
         addTasks();
         var id = -1;
 
-        var wasDeleted = store.deleteById(id);
-        var actualTasks = store.findAll();
+        var wasDeleted = store.deleteById(ownerId(), id);
+        var actualTasks = store.findAll(ownerId(), TaskFilter.ALL, null, Integer.MAX_VALUE);
 
         assertThat(wasDeleted).isFalse();
         assertThat(actualTasks).usingRecursiveComparison()
@@ -268,7 +405,97 @@ class TaskStoreTest {
                         Comparator.comparing(o -> o.truncatedTo(ChronoUnit.SECONDS)),
                         LocalDateTime.class)
                 .ignoringCollectionOrder()
-                .isEqualTo(tasks);
+                .isEqualTo(rows(tasks));
+    }
+
+    /**
+     * Проверяет сценарий, при котором задание другого пользователя не удаляется методом {@code deleteById}
+     */
+    @Test
+    void whenDeleteByIdForeignTaskThenGetFalse() {
+        addTasks();
+
+        var wasDeleted = store.deleteById(ownerId(), foreignTask.getId());
+        var actualForeign = store.findById(users.get(1).getId(), foreignTask.getId());
+
+        assertThat(wasDeleted).isFalse();
+        assertThat(actualForeign).isNotEmpty();
+    }
+
+    /**
+     * Проверяет сценарий выполнения нескольких заданий методом {@code setDoneByIds}:
+     * задания другого пользователя не изменяются
+     */
+    @Test
+    void whenSetDoneByIdsThenOnlyOwnTasksDone() {
+        addTasks();
+        var newTasks = tasks.stream().filter(task -> !task.isDone()).toList();
+        var ids = new ArrayList<>(newTasks.stream().map(Task::getId).toList());
+        ids.add(foreignTask.getId());
+
+        var count = store.setDoneByIds(ownerId(), ids);
+        var actualNew = store.findAll(ownerId(), TaskFilter.NEW, null, Integer.MAX_VALUE);
+
+        assertThat(count).isEqualTo(newTasks.size());
+        assertThat(actualNew).isEmpty();
+    }
+
+    /**
+     * Проверяет сценарий удаления нескольких заданий методом {@code deleteByIds}:
+     * задания другого пользователя не удаляются
+     */
+    @Test
+    void whenDeleteByIdsThenOnlyOwnTasksDeleted() {
+        addTasks();
+        var ids = List.of(tasks.get(0).getId(), tasks.get(1).getId(), foreignTask.getId());
+
+        var count = store.deleteByIds(ownerId(), ids);
+        var actualTasks = store.findAll(ownerId(), TaskFilter.ALL, null, Integer.MAX_VALUE);
+        var actualForeign = store.findById(users.get(1).getId(), foreignTask.getId());
+
+        assertThat(count).isEqualTo(2);
+        assertThat(actualTasks).extracting(TaskRowDTO::id)
+                .containsExactlyInAnyOrder(tasks.get(2).getId(), tasks.get(3).getId());
+        assertThat(actualForeign).isNotEmpty();
+    }
+
+    /**
+     * Проверяет сценарий удаления выполненных заданий, созданных раньше указанного момента,
+     * методом {@code deleteDoneCreatedBefore}
+     */
+    @Test
+    void whenDeleteDoneCreatedBeforeThenOwnDoneTasksDeleted() {
+        addTasks();
+        var expectedIds = tasks.stream().filter(task -> !task.isDone()).map(Task::getId).toList();
+
+        var count = store.deleteDoneCreatedBefore(ownerId(), LocalDateTime.now().plusMinutes(1));
+        var actualTasks = store.findAll(ownerId(), TaskFilter.ALL, null, Integer.MAX_VALUE);
+        var actualForeign = store.findById(users.get(1).getId(), foreignTask.getId());
+
+        assertThat(count).isEqualTo(tasks.size() - expectedIds.size());
+        assertThat(actualTasks).extracting(TaskRowDTO::id).containsExactlyInAnyOrderElementsOf(expectedIds);
+        assertThat(actualForeign).isNotEmpty();
+    }
+
+    /**
+     * Проверяет сценарий выгрузки заданий пользователя методом {@code exportAll}:
+     * каждое задание выгружается одной строкой со всеми категориями
+     */
+    @Test
+    void whenExportAllThenGetOwnTasksWithCategories() {
+        addTasks();
+        var exported = new ArrayList<TaskExportDTO>();
+
+        var result = store.exportAll(ownerId(), exported::add);
+
+        assertThat(result).isTrue();
+        assertThat(exported).extracting(TaskExportDTO::id)
+                .containsExactlyInAnyOrderElementsOf(tasks.stream().map(Task::getId).toList());
+        var third = exported.stream().filter(task -> task.id() == tasks.get(2).getId()).findFirst().orElseThrow();
+        assertThat(third.title()).isEqualTo("task3");
+        assertThat(third.priority()).isEqualTo("test2");
+        assertThat(third.done()).isTrue();
+        assertThat(third.categories()).containsExactly("test0", "test1", "test2");
     }
 
     /**
@@ -282,9 +509,10 @@ class TaskStoreTest {
         task.setDescription(task.getDescription() + " NEW");
 
         var wasUpdated = store.update(task);
-        var actualTask = store.findById(task.getId());
+        var actualTask = store.findById(ownerId(), task.getId());
 
-        assertThat(wasUpdated).isTrue();
+        assertThat(wasUpdated).isEqualTo(UpdateResult.UPDATED);
+        assertThat(task.getVersion()).isEqualTo(1);
         assertThat(actualTask).isNotEmpty();
         assertThat(actualTask.get()).usingRecursiveComparison()
                 .withComparatorForType(
@@ -304,9 +532,9 @@ class TaskStoreTest {
         task.setId(id);
 
         var wasUpdated = store.update(task);
-        var actualTask = store.findById(id);
+        var actualTask = store.findById(ownerId(), id);
 
-        assertThat(wasUpdated).isFalse();
+        assertThat(wasUpdated).isEqualTo(UpdateResult.NOT_FOUND);
         assertThat(actualTask).isEmpty();
     }
 
@@ -321,10 +549,10 @@ class TaskStoreTest {
         user.setLogin("login4");
         user.setPassword("password4");
         userRepository.save(user);
-        var task = new Task(0, "NEW test1", "NEW descr1", LocalDateTime.now(), true, user, null, List.of());
+        var task = new Task(0, "NEW test1", "NEW descr1", LocalDateTime.now(), true, user, null, Set.of(), 0);
 
         var wasSaved = store.save(task);
-        var actualTask = store.findById(task.getId());
+        var actualTask = store.findById(user.getId(), task.getId());
 
         assertThat(wasSaved).isTrue();
         assertThat(actualTask).isNotEmpty();
@@ -335,6 +563,171 @@ class TaskStoreTest {
                 .isEqualTo(task);
     }
 
+    /**
+     * Проверяет сценарий сохранения задания со ссылками на автора, приоритет и категории,
+     * заданными только идентификаторами: справочники не читаются из базы
+     */
+    @Test
+    void whenSaveWithIdReferencesThenNoEntitiesLoaded() {
+        addTasks();
+        var user = new User();
+        user.setId(ownerId());
+        var priority = new Priority();
+        priority.setId(priorities.get(2).getId());
+        var task = new Task(0, "reference", "reference descr", LocalDateTime.now(), false, user, priority,
+                Set.of(new Category(categories.get(0).getId(), null), new Category(categories.get(3).getId(), null)), 0);
+        var statistics = sf.getStatistics();
+        var loads = statistics.getEntityLoadCount();
+
+        var wasSaved = store.save(task);
+        var actualLoads = statistics.getEntityLoadCount() - loads;
+        var actualTask = store.findById(ownerId(), task.getId());
+
+        assertThat(wasSaved).isTrue();
+        assertThat(actualLoads).isZero();
+        assertThat(actualTask).isNotEmpty();
+        assertThat(actualTask.get().getUser().getName()).isEqualTo(users.get(0).getName());
+        assertThat(actualTask.get().getPriority().getName()).isEqualTo(priorities.get(2).getName());
+        assertThat(actualTask.get().getCategories()).extracting(Category::getName)
+                .containsExactlyInAnyOrder(categories.get(0).getName(), categories.get(3).getName());
+    }
+
+    /**
+     * Проверяет сценарий обновления категорий задания: строки {@code task_categories} меняются
+     * разницей (коллекция обновляется, а не пересоздается), версия задания растет
+     */
+    @Test
+    void whenUpdateCategoriesThenCollectionUpdatedNotRecreated() {
+        addTasks();
+        var task = tasks.get(1);
+        task.setCategories(Set.of(new Category(categories.get(1).getId(), null),
+                new Category(categories.get(2).getId(), null)));
+        var statistics = sf.getStatistics();
+        var recreates = statistics.getCollectionRecreateCount();
+        var updates = statistics.getCollectionUpdateCount();
+
+        var wasUpdated = store.update(task);
+        var actualTask = store.findById(ownerId(), task.getId());
+
+        assertThat(wasUpdated).isEqualTo(UpdateResult.UPDATED);
+        assertThat(statistics.getCollectionRecreateCount() - recreates).isZero();
+        assertThat(statistics.getCollectionUpdateCount() - updates).isEqualTo(1);
+        assertThat(actualTask).isNotEmpty();
+        assertThat(actualTask.get().getVersion()).isEqualTo(1);
+        assertThat(actualTask.get().getCategories()).extracting(Category::getName)
+                .containsExactlyInAnyOrder(categories.get(1).getName(), categories.get(2).getName());
+    }
+
+    /**
+     * Проверяет сценарий обновления задания по устаревшей версии: обновление отклоняется
+     * как конфликт, задание в базе не меняется
+     */
+    @Test
+    void whenUpdateStaleVersionThenGetConflict() {
+        addTasks();
+        var task = tasks.get(0);
+        var stale = new Task(task.getId(), "stale", task.getDescription(), task.getCreated(), task.isDone(),
+                task.getUser(), task.getPriority(), task.getCategories(), task.getVersion());
+        task.setTitle("fresh");
+        store.update(task);
+
+        var wasUpdated = store.update(stale);
+        var actualTask = store.findById(ownerId(), task.getId());
+
+        assertThat(wasUpdated).isEqualTo(UpdateResult.CONFLICT);
+        assertThat(actualTask).isNotEmpty();
+        assertThat(actualTask.get().getTitle()).isEqualTo("fresh");
+    }
+
+    /**
+     * Проверяет сценарий обновления чужого задания методом {@code update}: задание не найдено
+     */
+    @Test
+    void whenUpdateForeignTaskThenGetNotFound() {
+        addTasks();
+        foreignTask.setUser(users.get(0));
+        foreignTask.setTitle("foreign NEW");
+
+        var wasUpdated = store.update(foreignTask);
+        var actualTask = store.findById(users.get(1).getId(), foreignTask.getId());
+
+        assertThat(wasUpdated).isEqualTo(UpdateResult.NOT_FOUND);
+        assertThat(actualTask).isNotEmpty();
+        assertThat(actualTask.get().getTitle()).isEqualTo("foreign");
+    }
+
+    /**
+     * Проверяет сценарий обновления чужого задания через сервис, когда форма содержит {@code userId}
+     * владельца: автором считается пользователь сессии, задание не найдено и не меняется,
+     * версия данных владельца остается прежней
+     */
+    @Test
+    void whenUpdateWithForeignUserIdInFormThenGetNotFound() {
+        addTasks();
+        var service = new SimpleTaskService(store, new TaskVersions());
+        var owner = users.get(1);
+        var ownerVersion = service.getVersion(owner);
+        var taskDto = new TaskDTO(foreignTask.getId(), "foreign NEW", "foreign descr", foreignTask.getCreated(),
+                false, owner.getId(), owner.getName(), priorities.get(1).getId(), "",
+                List.of(categories.get(1).getId()), "", foreignTask.getVersion());
+
+        var wasUpdated = service.update(taskDto, users.get(0));
+        var actualTask = store.findById(users.get(1).getId(), foreignTask.getId());
+
+        assertThat(wasUpdated).isEqualTo(UpdateResult.NOT_FOUND);
+        assertThat(actualTask).isNotEmpty();
+        assertThat(actualTask.get().getTitle()).isEqualTo("foreign");
+        assertThat(service.getVersion(owner)).isEqualTo(ownerVersion);
+    }
+
+    /**
+     * Проверяет сценарий пакетного сохранения заданий методом {@code saveAll}:
+     * заданий больше размера JDBC-пакета, все сохраняются вместе с категориями
+     */
+    @Test
+    void whenSaveAllThenAllTasksSaved() {
+        addTasks();
+        var newTasks = new ArrayList<Task>();
+        for (int i = 0; i < 120; i++) {
+            newTasks.add(new Task(0, "bulk" + i, "bulk descr" + i, LocalDateTime.now(), i % 2 == 0, users.get(0),
+                    priorities.get(i % priorities.size()), Set.of(categories.get(i % categories.size())), 0));
+        }
+
+        var wasSaved = store.saveAll(newTasks);
+        var actualTasks = store.findAll(ownerId(), TaskFilter.ALL, null, Integer.MAX_VALUE);
+
+        assertThat(wasSaved).isTrue();
+        assertThat(newTasks).extracting(Task::getId).doesNotContain(0).doesNotHaveDuplicates();
+        assertThat(actualTasks).usingRecursiveComparison()
+                .withComparatorForType(
+                        Comparator.comparing(o -> o.truncatedTo(ChronoUnit.SECONDS)),
+                        LocalDateTime.class)
+                .ignoringCollectionOrder()
+                .isEqualTo(rows(Stream.concat(tasks.stream(), newTasks.stream()).toList()));
+    }
+
+    /**
+     * Проверяет, что {@code saveAll} сбрасывает сессию после каждого JDBC-пакета
+     * из {@code hibernate.jdbc.batch_size} (50) заданий: два сброса пакетов на 120 заданий
+     * и один при завершении транзакции в {@code CrudRepository}
+     */
+    @Test
+    void whenSaveAllThenSessionFlushedPerBatch() {
+        addTasks();
+        var newTasks = new ArrayList<Task>();
+        for (int i = 0; i < 120; i++) {
+            newTasks.add(new Task(0, "bulk" + i, "bulk descr" + i, LocalDateTime.now(), false, users.get(0),
+                    priorities.get(0), Set.of(categories.get(0)), 0));
+        }
+        var statistics = sf.getStatistics();
+        var flushesBefore = statistics.getFlushCount();
+
+        var wasSaved = store.saveAll(newTasks);
+
+        assertThat(wasSaved).isTrue();
+        assertThat(statistics.getFlushCount() - flushesBefore).isEqualTo(3);
+    }
+
     /**
      * Проверяет неуспешный сценарий сохранения задания методом {@code save}
      */
@@ -344,11 +737,70 @@ class TaskStoreTest {
         doThrow(new RuntimeException()).when(spySession).persist(any());
         var spySf = spy(sf);
         when(spySf.openSession()).thenReturn(spySession);
-        var testStore = new TaskStore(new CrudRepository(spySf));
+        var testStore = new TaskStore(new CrudRepository(spySf, new SimpleMeterRegistry()));
         var task = new Task();
 
         var wasSaved = testStore.save(task);
 
         assertThat(wasSaved).isFalse();
     }
-}
\ No newline at end of file
+
+    /**
+     * Проверяет число SQL-запросов методов чтения: каждый выполняется одним запросом,
+     * {@code findById} загружает автора, приоритет и категории тем же запросом
+     */
+    @Test
+    void whenReadThenOneStatementPerMethod() {
+        addTasks();
+        var id = tasks.get(2).getId();
+        var found = new ArrayList<Task>();
+
+        assertThat(statements(sf, () -> store.findAll(ownerId(), TaskFilter.ALL, null, 21))).isEqualTo(1);
+        assertThat(statements(sf, () -> store.findAll(ownerId(),
+                new TaskFilter(true, Set.of(priorities.get(2).getId()), Set.of(categories.get(0).getId()), false,
+                        null, null), null, 21))).isEqualTo(1);
+        assertThat(statements(sf, () -> store.search(ownerId(), "task", 0, 21))).isEqualTo(1);
+        assertThat(statements(sf, () -> store.exportAll(ownerId(), task -> { }))).isEqualTo(1);
+        assertThat(statements(sf, () -> store.findById(ownerId(), id).ifPresent(found::add))).isEqualTo(1);
+        var task = found.get(0);
+        assertThat(statements(sf, () -> {
+            task.getUser().getName();
+            task.getPriority().getName();
+            task.getCategories().size();
+        })).isZero();
+    }
+
+    /**
+     * Проверяет число SQL-запросов метода {@code update}: выборка задания с категориями,
+     * UPDATE и по одному запросу на удаленную и добавленную категорию
+     */
+    @Test
+    void whenUpdateThenSelectUpdateAndCategoryDiffStatements() {
+        addTasks();
+        var task = tasks.get(1);
+        task.setTitle("task2 NEW");
+        task.setCategories(Set.of(new Category(categories.get(1).getId(), null),
+                new Category(categories.get(3).getId(), null)));
+
+        assertThat(statements(sf, () -> store.update(task))).isEqualTo(4);
+    }
+
+    /**
+     * Проверяет число SQL-запросов методов записи: {@code save} - INSERT задания и строк категорий
+     * (и вызов последовательности раз в 50 заданий), массовые изменения - один запрос,
+     * массовые удаления - удаление строк категорий и заданий
+     */
+    @Test
+    void whenWriteThenStatementsWithoutReferenceLoads() {
+        addTasks();
+        var task = new Task(0, "task5", "descr5", LocalDateTime.now(), false, users.get(0), priorities.get(0),
+                Set.of(categories.get(0), categories.get(1)), 0);
+
+        assertThat(statements(sf, () -> store.save(task))).isBetween(2L, 3L);
+        assertThat(statements(sf, () -> store.setDoneById(ownerId(), tasks.get(0).getId()))).isEqualTo(1);
+        assertThat(statements(sf, () -> store.setDoneByIds(ownerId(), List.of(tasks.get(1).getId())))).isEqualTo(1);
+        assertThat(statements(sf, () -> store.deleteById(ownerId(), tasks.get(0).getId()))).isEqualTo(2);
+        assertThat(statements(sf, () -> store.deleteByIds(ownerId(), List.of(tasks.get(1).getId())))).isEqualTo(2);
+        assertThat(statements(sf, () -> store.deleteDoneCreatedBefore(ownerId(), LocalDateTime.now()))).isEqualTo(2);
+    }
+}
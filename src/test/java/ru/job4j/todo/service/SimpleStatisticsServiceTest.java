@@ -0,0 +1,61 @@
+package ru.job4j.todo.service;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.QueryStatistics;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import ru.job4j.todo.dto.StatisticsDTO;
+import ru.job4j.todo.service.statistics.SimpleStatisticsService;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class SimpleStatisticsServiceTest {
+
+    private Statistics statistics;
+    private CaffeineCacheManager cacheManager;
+    private SimpleStatisticsService service;
+
+    @BeforeEach
+    void setUp() {
+        var sf = mock(SessionFactory.class);
+        statistics = mock(Statistics.class);
+        when(sf.getStatistics()).thenReturn(statistics);
+        cacheManager = new CaffeineCacheManager("priorities");
+        cacheManager.setCaffeine(Caffeine.newBuilder().recordStats());
+        service = new SimpleStatisticsService(sf, cacheManager);
+    }
+
+    /**
+     * Проверяет сценарий, при котором запросы сортируются по суммарному времени,
+     * а доля попаданий в кэш считается по статистике Caffeine
+     */
+    @Test
+    void whenGetStatisticsThenQueriesSortedByTotalTimeAndCacheRatioCalculated() {
+        var fast = mock(QueryStatistics.class);
+        when(fast.getExecutionCount()).thenReturn(10L);
+        when(fast.getExecutionTotalTime()).thenReturn(20L);
+        var slow = mock(QueryStatistics.class);
+        when(slow.getExecutionCount()).thenReturn(2L);
+        when(slow.getExecutionTotalTime()).thenReturn(300L);
+        when(statistics.getQueries()).thenReturn(new String[] {"fast", "slow"});
+        when(statistics.getQueryStatistics("fast")).thenReturn(fast);
+        when(statistics.getQueryStatistics("slow")).thenReturn(slow);
+        when(statistics.getQueryExecutionCount()).thenReturn(12L);
+        var cache = cacheManager.getCache("priorities");
+        cache.put(1, "high");
+        cache.get(1);
+        cache.get(1);
+        cache.get(2);
+
+        var result = service.getStatistics();
+
+        assertThat(result.queries()).isEqualTo(12L);
+        assertThat(result.topQueries()).extracting(StatisticsDTO.Query::query).containsExactly("slow", "fast");
+        assertThat(result.caches()).containsEntry("priorities", new StatisticsDTO.CacheRatio(2, 1, 2.0 / 3));
+        assertThat(result.secondLevelCache().hitRatio()).isZero();
+    }
+}
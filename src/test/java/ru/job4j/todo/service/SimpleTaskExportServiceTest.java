@@ -0,0 +1,99 @@
+package ru.job4j.todo.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.job4j.todo.dto.TaskExportDTO;
+import ru.job4j.todo.model.User;
+import ru.job4j.todo.repository.task.Store;
+import ru.job4j.todo.service.transfer.SimpleTaskExportService;
+import ru.job4j.todo.service.transfer.TaskExportService;
+import ru.job4j.todo.service.transfer.TaskFileFormat;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class SimpleTaskExportServiceTest {
+
+    private Store store;
+    private TaskExportService service;
+    private User user;
+
+    @BeforeEach
+    void setUp() {
+        store = mock(Store.class);
+        service = new SimpleTaskExportService(store, new ObjectMapper().findAndRegisterModules());
+        user = new User();
+        user.setId(1);
+        user.setTimezone("Europe/Moscow");
+    }
+
+    @SuppressWarnings("unchecked")
+    private void mockTasks(TaskExportDTO... tasks) {
+        when(store.exportAll(eq(user.getId()), any())).thenAnswer(invocation -> {
+            Consumer<TaskExportDTO> consumer = invocation.getArgument(1);
+            for (TaskExportDTO task : tasks) {
+                consumer.accept(task);
+            }
+            return true;
+        });
+    }
+
+    /**
+     * Проверяет сценарий выгрузки в CSV: значения со спецсимволами экранируются,
+     * категории перечисляются через точку с запятой, время переводится в пояс пользователя
+     */
+    @Test
+    void whenExportCsvThenGetEscapedRows() throws IOException {
+        mockTasks(new TaskExportDTO(1, "title, \"quoted\"", "line1\nline2",
+                        LocalDateTime.of(2024, 1, 1, 9, 0), true, "high", List.of("home", "work")),
+                new TaskExportDTO(2, "plain", "descr", LocalDateTime.of(2024, 1, 2, 9, 0), false, null, List.of()));
+        var out = new ByteArrayOutputStream();
+
+        service.export(user, TaskFileFormat.CSV, out);
+
+        assertThat(out.toString(StandardCharsets.UTF_8)).isEqualTo(
+                "id,title,description,created,done,priority,categories\r\n"
+                        + "1,\"title, \"\"quoted\"\"\",\"line1\nline2\",2024-01-01T12:00,true,high,home;work\r\n"
+                        + "2,plain,descr,2024-01-02T12:00,false,,\r\n");
+    }
+
+    /**
+     * Проверяет сценарий выгрузки в NDJSON: по одному JSON-объекту на строку
+     */
+    @Test
+    void whenExportNdjsonThenGetObjectPerLine() throws IOException {
+        mockTasks(new TaskExportDTO(1, "first", "descr", LocalDateTime.of(2024, 1, 1, 9, 0), true, "high",
+                        List.of("home")),
+                new TaskExportDTO(2, "second", "descr", LocalDateTime.of(2024, 1, 2, 9, 0), false, null, List.of()));
+        var out = new ByteArrayOutputStream();
+
+        service.export(user, TaskFileFormat.NDJSON, out);
+
+        var lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertThat(lines).hasSize(2);
+        assertThat(lines[0]).isEqualTo("{\"id\":1,\"title\":\"first\",\"description\":\"descr\","
+                + "\"created\":\"2024-01-01T12:00:00\",\"done\":true,\"priority\":\"high\",\"categories\":[\"home\"]}");
+        assertThat(lines[1]).startsWith("{\"id\":2,");
+    }
+
+    /**
+     * Проверяет сценарий ошибки чтения заданий: выгрузка прерывается исключением
+     */
+    @Test
+    void whenStoreFailsThenExportThrows() {
+        when(store.exportAll(anyInt(), any())).thenReturn(false);
+
+        assertThatThrownBy(() -> service.export(user, TaskFileFormat.CSV, new ByteArrayOutputStream()))
+                .isInstanceOf(IOException.class);
+    }
+}
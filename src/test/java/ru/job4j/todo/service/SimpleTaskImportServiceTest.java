@@ -0,0 +1,138 @@
+package ru.job4j.todo.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import ru.job4j.todo.dto.TaskDTO;
+import ru.job4j.todo.model.Category;
+import ru.job4j.todo.model.Priority;
+import ru.job4j.todo.model.User;
+import ru.job4j.todo.service.category.CategoryService;
+import ru.job4j.todo.service.priority.PriorityService;
+import ru.job4j.todo.service.task.TaskService;
+import ru.job4j.todo.service.transfer.SimpleTaskImportService;
+import ru.job4j.todo.service.transfer.TaskFileFormat;
+import ru.job4j.todo.service.transfer.TaskImportService;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class SimpleTaskImportServiceTest {
+
+    private TaskService taskService;
+    private TaskImportService service;
+    private User user;
+    private Priority priority;
+    private List<TaskDTO> saved;
+
+    @BeforeEach
+    void setUp() {
+        taskService = mock(TaskService.class);
+        var priorityService = mock(PriorityService.class);
+        var categoryService = mock(CategoryService.class);
+        priority = new Priority();
+        priority.setId(1);
+        priority.setName("high");
+        when(priorityService.findAll()).thenReturn(List.of(priority));
+        when(categoryService.findAll()).thenReturn(List.of(new Category(1, "home"), new Category(2, "work")));
+        service = new SimpleTaskImportService(taskService, priorityService, categoryService,
+                new ObjectMapper().findAndRegisterModules());
+        user = new User();
+        user.setId(1);
+        user.setTimezone("Europe/Moscow");
+        saved = new ArrayList<>();
+        when(taskService.saveAll(any(), any())).thenAnswer(invocation -> {
+            Collection<TaskDTO> tasks = invocation.getArgument(0);
+            saved.addAll(tasks);
+            return true;
+        });
+    }
+
+    private static ByteArrayInputStream input(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Проверяет сценарий загрузки CSV: поля в кавычках разбираются, названия приоритета и категорий
+     * сопоставляются со справочниками, время переводится из пояса пользователя в UTC
+     */
+    @Test
+    void whenImportCsvThenTasksSaved() throws IOException {
+        var csv = "id,title,description,created,done,priority,categories\r\n"
+                + "7,\"title, \"\"quoted\"\"\",\"line1\nline2\",2024-01-01T12:00,true,high,home;work\r\n"
+                + "8,plain,descr,,false,,\r\n";
+
+        var result = service.importTasks(user, TaskFileFormat.CSV, input(csv));
+
+        assertThat(result.imported()).isEqualTo(2);
+        assertThat(result.failed()).isZero();
+        assertThat(result.errors()).isEmpty();
+        assertThat(saved).hasSize(2);
+        var first = saved.get(0);
+        assertThat(first.getId()).isZero();
+        assertThat(first.getTitle()).isEqualTo("title, \"quoted\"");
+        assertThat(first.getDescription()).isEqualTo("line1\nline2");
+        assertThat(first.getCreated()).isEqualTo(LocalDateTime.of(2024, 1, 1, 9, 0));
+        assertThat(first.isDone()).isTrue();
+        assertThat(first.getUserId()).isEqualTo(user.getId());
+        assertThat(first.getPriorityId()).isEqualTo(priority.getId());
+        assertThat(first.getCategoriesId()).containsExactly(1, 2);
+        assertThat(saved.get(1).getPriorityId()).isZero();
+        assertThat(saved.get(1).getCategoriesId()).isEmpty();
+    }
+
+    /**
+     * Проверяет сценарий загрузки NDJSON с ошибочными строками: они попадают в отчет
+     * с номерами, остальные задания сохраняются
+     */
+    @Test
+    void whenImportNdjsonWithErrorsThenErrorRowsReported() throws IOException {
+        var ndjson = """
+                {"title":"first","priority":"high","categories":["home"]}
+                {"title":"second","priority":"unknown"}
+                not json
+                {"title":"third","categories":["missing"]}
+                {"description":"no title"}
+                {"title":"fourth","created":"2024-01-01T12:00:00","done":true}
+                """;
+
+        var result = service.importTasks(user, TaskFileFormat.NDJSON, input(ndjson));
+
+        assertThat(result.imported()).isEqualTo(2);
+        assertThat(result.failed()).isEqualTo(4);
+        assertThat(result.errors()).extracting(error -> error.row()).containsExactly(2L, 3L, 4L, 5L);
+        assertThat(saved).extracting(TaskDTO::getTitle).containsExactly("first", "fourth");
+    }
+
+    /**
+     * Проверяет сценарий загрузки большого файла: задания сохраняются пакетами ограниченного размера,
+     * отказ сохранения одного пакета не отменяет остальные
+     */
+    @Test
+    void whenImportManyRowsThenSavedInBatches() throws IOException {
+        var csv = new StringBuilder("title\n");
+        for (int i = 0; i < 1001; i++) {
+            csv.append("task").append(i).append('\n');
+        }
+        doReturn(true, false, true).when(taskService).saveAll(any(), any());
+        var captor = ArgumentCaptor.forClass(Collection.class);
+
+        var result = service.importTasks(user, TaskFileFormat.CSV, input(csv.toString()));
+
+        verify(taskService, times(3)).saveAll(captor.capture(), eq(user));
+        assertThat(captor.getAllValues()).extracting(Collection::size).containsExactly(500, 500, 1);
+        assertThat(result.batches()).extracting(batch -> batch.saved()).containsExactly(true, false, true);
+        assertThat(result.imported()).isEqualTo(501);
+        assertThat(result.failed()).isEqualTo(500);
+    }
+}
@@ -4,17 +4,21 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import ru.job4j.todo.dto.TaskDTO;
+import ru.job4j.todo.dto.TaskFilterDTO;
+import ru.job4j.todo.dto.TaskRowDTO;
 import ru.job4j.todo.model.Category;
 import ru.job4j.todo.model.Priority;
 import ru.job4j.todo.model.Task;
 import ru.job4j.todo.model.User;
 import ru.job4j.todo.repository.task.Store;
-import ru.job4j.todo.service.category.CategoryService;
-import ru.job4j.todo.service.priority.PriorityService;
+import ru.job4j.todo.repository.task.TaskCursor;
+import ru.job4j.todo.repository.task.TaskFilter;
+import ru.job4j.todo.repository.task.UpdateResult;
 import ru.job4j.todo.service.task.SimpleTaskService;
 import ru.job4j.todo.service.task.TaskService;
-import ru.job4j.todo.service.user.UserService;
+import ru.job4j.todo.service.task.TaskVersions;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
@@ -26,21 +30,17 @@ import static org.mockito.Mockito.*;
 class SimpleTaskServiceTest {
 
     private Store store;
-    private UserService userService;
     private TaskService service;
-    private PriorityService priorityService;
-    private CategoryService categoryService;
     private List<Task> tasks;
     private List<TaskDTO> taskDtos;
+    private List<TaskRowDTO> rows;
+    private List<TaskDTO> rowDtos;
     private User user;
 
     @BeforeEach
     void setUp() {
         store = mock(Store.class);
-        userService = mock(UserService.class);
-        priorityService = mock(PriorityService.class);
-        categoryService = mock(CategoryService.class);
-        service = new SimpleTaskService(store, userService, priorityService, categoryService);
+        service = new SimpleTaskService(store, new TaskVersions());
         user = new User();
         user.setName("Test name");
         user.setLogin("Test login");
@@ -54,18 +54,18 @@ class SimpleTaskServiceTest {
     @Test
     void whenFindAllThenGetAllTasksData() {
         addTasksAndDTO();
-        when(store.findAll()).thenReturn(tasks);
+        when(store.findAll(eq(user.getId()), eq(TaskFilter.ALL), isNull(), anyInt())).thenReturn(rows);
 
-        var actualtaskDtos = service.findAll(user);
+        var actualtaskDtos = service.findAll(user, new TaskFilterDTO(), null).items();
 
-        assertThat(actualtaskDtos).containsExactlyInAnyOrderElementsOf(taskDtos);
+        assertThat(actualtaskDtos).containsExactlyInAnyOrderElementsOf(rowDtos);
     }
 
     private void addTasksAndDTO() {
         var categories = List.of(new Category(1, "test1"), new Category(2, "test2"));
-        tasks = List.of(new Task(1, "test1", "desc1", LocalDateTime.now(), true, new User(), new Priority(), List.of()),
-                new Task(2, "test2", "desc2", LocalDateTime.now(), false, new User(), new Priority(), List.of(categories.get(0))),
-                new Task(3, "test3", "desc", LocalDateTime.now(), true, new User(), new Priority(), List.of(categories.get(0), categories.get(1))));
+        tasks = List.of(new Task(1, "test1", "desc1", LocalDateTime.now(), true, new User(), new Priority(), Set.of(), 0),
+                new Task(2, "test2", "desc2", LocalDateTime.now(), false, new User(), new Priority(), Set.of(categories.get(0)), 0),
+                new Task(3, "test3", "desc", LocalDateTime.now(), true, new User(), new Priority(), Set.of(categories.get(0), categories.get(1)), 0));
         taskDtos = tasks.stream()
                 .map(task -> new TaskDTO(
                         task.getId(), task.getTitle(), task.getDescription(), task.getCreated(), task.isDone(),
@@ -74,8 +74,41 @@ class SimpleTaskServiceTest {
                         task.getCategories().stream()
                                 .map(Category::getName)
                                 .sorted()
+                                .collect(Collectors.joining(", ")), 0))
+                .toList();
+        rows = tasks.stream()
+                .map(task -> new TaskRowDTO(task.getId(), task.getTitle(), task.getCreated(), task.isDone(),
+                        task.getPriority().getId(), task.getPriority().getName(),
+                        task.getCategories().stream().map(Category::getName).sorted()
                                 .collect(Collectors.joining(", "))))
                 .toList();
+        rowDtos = rows.stream()
+                .map(row -> new TaskDTO(row.id(), row.title(), null, row.created(), row.done(),
+                        user.getId(), user.getName(), row.priorityId(), "", List.of(), row.categories(), 0))
+                .toList();
+    }
+
+    /**
+     * Проверяет сценарий постраничного возврата заданий методом {@code findAll}: лишнее задание
+     * отбрасывается, курсор следующей страницы указывает на последнее задание страницы
+     */
+    @Test
+    void whenFindAllMoreThanPageThenGetPageWithNextCursor() {
+        var created = LocalDateTime.of(2024, 1, 1, 10, 0);
+        var pageRows = new ArrayList<TaskRowDTO>();
+        for (int i = 1; i <= 21; i++) {
+            pageRows.add(new TaskRowDTO(i, "test" + i, created.plusMinutes(i), false, 0, null, null));
+        }
+        var after = "2024-01-01T09:00_7";
+        var cursorCaptor = ArgumentCaptor.forClass(TaskCursor.class);
+        when(store.findAll(eq(user.getId()), eq(TaskFilter.ALL), cursorCaptor.capture(), anyInt())).thenReturn(pageRows);
+
+        var actual = service.findAll(user, new TaskFilterDTO(), after);
+
+        assertThat(actual.items()).hasSize(20);
+        assertThat(actual.items().get(19).getId()).isEqualTo(20);
+        assertThat(actual.nextCursor()).isEqualTo(new TaskCursor(created.plusMinutes(20), 20).toString());
+        assertThat(cursorCaptor.getValue()).isEqualTo(new TaskCursor(LocalDateTime.of(2024, 1, 1, 9, 0), 7));
     }
 
     /**
@@ -84,11 +117,11 @@ class SimpleTaskServiceTest {
     @Test
     void whenFindDoneThenGetDoneTasksData() {
         addTasksAndDTO();
-        when(store.findDone()).thenReturn(tasks);
+        when(store.findAll(eq(user.getId()), eq(TaskFilter.DONE), isNull(), anyInt())).thenReturn(rows);
 
-        var actualtaskDtos = service.findDone(user);
+        var actualtaskDtos = service.findDone(user, new TaskFilterDTO(), null).items();
 
-        assertThat(actualtaskDtos).containsExactlyInAnyOrderElementsOf(taskDtos);
+        assertThat(actualtaskDtos).containsExactlyInAnyOrderElementsOf(rowDtos);
     }
 
     /**
@@ -97,11 +130,11 @@ class SimpleTaskServiceTest {
     @Test
     void whenFindNewThenGetNewTasksData() {
         addTasksAndDTO();
-        when(store.findNew()).thenReturn(tasks);
+        when(store.findAll(eq(user.getId()), eq(TaskFilter.NEW), isNull(), anyInt())).thenReturn(rows);
 
-        var actualtaskDtos = service.findNew(user);
+        var actualtaskDtos = service.findNew(user, new TaskFilterDTO(), null).items();
 
-        assertThat(actualtaskDtos).containsExactlyInAnyOrderElementsOf(taskDtos);
+        assertThat(actualtaskDtos).containsExactlyInAnyOrderElementsOf(rowDtos);
     }
 
     /**
@@ -111,12 +144,13 @@ class SimpleTaskServiceTest {
     void whenFindByIdSuccessfulThenGetTaskData() {
         var id = 1;
         var task = new Task(id, "test1", "desc1", LocalDateTime.now(), false, new User(),
-                new Priority(), List.of(new  Category(1, "test1")));
+                new Priority(), Set.of(new Category(1, "test1")), 0);
         var taskDto = new TaskDTO(task.getId(), task.getTitle(), task.getDescription(), task.getCreated(), task.isDone(),
                 task.getUser().getId(), task.getUser().getName(), task.getPriority().getId(), task.getPriority().getName(),
-                List.of(1), "test1");
+                List.of(1), "test1", 0);
         var intArgCaptor = ArgumentCaptor.forClass(Integer.class);
-        when(store.findById(intArgCaptor.capture())).thenReturn(Optional.of(task));
+        user.setId(7);
+        when(store.findById(eq(user.getId()), intArgCaptor.capture())).thenReturn(Optional.of(task));
 
         var actualtaskDto = service.findById(id, user);
         var actualId = intArgCaptor.getValue();
@@ -132,7 +166,7 @@ class SimpleTaskServiceTest {
     @Test
     void whenFindByIdUnSuccessfulThenGetEmpty() {
         var id = 1;
-        when(store.findById(any(Integer.class))).thenReturn(Optional.empty());
+        when(store.findById(any(Integer.class), any(Integer.class))).thenReturn(Optional.empty());
 
         var actualtaskDto = service.findById(id, user);
 
@@ -146,9 +180,9 @@ class SimpleTaskServiceTest {
     void whenSetDoneByIdSuccessfulThenGetTrue() {
         var id = 1;
         var intArgCaptor = ArgumentCaptor.forClass(Integer.class);
-        when(store.setDoneById(intArgCaptor.capture())).thenReturn(true);
+        when(store.setDoneById(eq(user.getId()), intArgCaptor.capture())).thenReturn(true);
 
-        var actual = service.setDoneById(id);
+        var actual = service.setDoneById(id, user);
         var actualId = intArgCaptor.getValue();
 
         assertThat(actual).isTrue();
@@ -161,9 +195,9 @@ class SimpleTaskServiceTest {
     @Test
     void whenSetDoneByIdUnSuccessfulThenGetFalse() {
         var id = 1;
-        when(store.setDoneById(any(Integer.class))).thenReturn(false);
+        when(store.setDoneById(anyInt(), anyInt())).thenReturn(false);
 
-        var actual = service.setDoneById(id);
+        var actual = service.setDoneById(id, user);
 
         assertThat(actual).isFalse();
     }
@@ -175,9 +209,9 @@ class SimpleTaskServiceTest {
     void whenDeleteByIdSuccessfulThenGetTrue() {
         var id = 1;
         var intArgCaptor = ArgumentCaptor.forClass(Integer.class);
-        when(store.deleteById(intArgCaptor.capture())).thenReturn(true);
+        when(store.deleteById(eq(user.getId()), intArgCaptor.capture())).thenReturn(true);
 
-        var actual = service.deleteById(id);
+        var actual = service.deleteById(id, user);
         var actualId = intArgCaptor.getValue();
 
         assertThat(actual).isTrue();
@@ -190,15 +224,83 @@ class SimpleTaskServiceTest {
     @Test
     void whenDeleteByIdUnSuccessfulThenGetFalse() {
         var id = 1;
-        when(store.deleteById(any(Integer.class))).thenReturn(false);
+        when(store.deleteById(anyInt(), anyInt())).thenReturn(false);
 
-        var actual = service.deleteById(id);
+        var actual = service.deleteById(id, user);
 
         assertThat(actual).isFalse();
     }
 
     /**
-     * Проверяет успешный сценарий обновления задания методом {@code update}
+     * Проверяет сценарий, при котором даты фильтра из часового пояса пользователя переводятся
+     * в период UTC, включающий последний день
+     */
+    @Test
+    void whenFindNewWithFilterThenStoreGetsUtcPeriod() {
+        user.setTimezone("Europe/Moscow");
+        var filter = new TaskFilterDTO(Set.of(1), Set.of(2, 3), true,
+                LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 31));
+        var filterCaptor = ArgumentCaptor.forClass(TaskFilter.class);
+        when(store.findAll(eq(user.getId()), filterCaptor.capture(), isNull(), anyInt())).thenReturn(List.of());
+
+        service.findNew(user, filter, null);
+
+        assertThat(filterCaptor.getValue()).isEqualTo(new TaskFilter(false, Set.of(1), Set.of(2, 3), true,
+                LocalDateTime.of(2024, 2, 29, 21, 0), LocalDateTime.of(2024, 3, 31, 21, 0)));
+    }
+
+    /**
+     * Проверяет сценарий поиска методом {@code search}: курсором следующей страницы служит смещение
+     */
+    @Test
+    void whenSearchThenGetPageWithOffsetCursor() {
+        var found = new ArrayList<TaskRowDTO>();
+        for (int i = 0; i <= 20; i++) {
+            found.add(new TaskRowDTO(i + 1, "test" + i, LocalDateTime.now(), false, 1, "high", null));
+        }
+        when(store.search(user.getId(), "test", 20, 21)).thenReturn(found);
+
+        var actual = service.search(user, "test", "20");
+
+        assertThat(actual.items()).hasSize(20);
+        assertThat(actual.nextCursor()).isEqualTo("40");
+    }
+
+    /**
+     * Проверяет сценарий, при котором версия данных пользователя меняется только после успешной записи
+     */
+    @Test
+    void whenSetDoneByIdThenVersionChangesOnlyOnSuccess() {
+        when(store.setDoneById(user.getId(), 1)).thenReturn(true);
+        var initial = service.getVersion(user);
+
+        service.setDoneById(2, user);
+        var afterFailure = service.getVersion(user);
+        service.setDoneById(1, user);
+        var afterSuccess = service.getVersion(user);
+
+        assertThat(afterFailure).isEqualTo(initial);
+        assertThat(afterSuccess).isNotEqualTo(initial);
+    }
+
+    /**
+     * Проверяет сценарий удаления выполненных заданий методом {@code deleteDoneCreatedBefore}:
+     * момент из часового пояса пользователя переводится в UTC
+     */
+    @Test
+    void whenDeleteDoneCreatedBeforeThenBeforeConvertedToUtc() {
+        user.setId(7);
+        user.setTimezone("Europe/Moscow");
+        when(store.deleteDoneCreatedBefore(7, LocalDateTime.of(2024, 1, 1, 7, 0))).thenReturn(3);
+
+        var actual = service.deleteDoneCreatedBefore(LocalDateTime.of(2024, 1, 1, 10, 0), user);
+
+        assertThat(actual).isEqualTo(3);
+    }
+
+    /**
+     * Проверяет успешный сценарий обновления задания методом {@code update}: автор, приоритет
+     * и категории передаются хранилищу ссылками только с идентификаторами
      */
     @Test
     void whenUpdateSuccessfulThenGetTrue() {
@@ -208,55 +310,48 @@ class SimpleTaskServiceTest {
         var idPriority = 2;
         var priority = new Priority();
         priority.setId(idPriority);
-        var category = new Category(1, "test1");
-        var task = new Task(id, "test1", "desc1", LocalDateTime.now(), false, user, priority, List.of(category));
+        var task = new Task(id, "test1", "desc1", LocalDateTime.now(), false, user, priority,
+                Set.of(new Category(1, null)), 3);
         var taskDto = new TaskDTO(task.getId(), task.getTitle(), task.getDescription(), task.getCreated(), task.isDone(),
                 task.getUser().getId(), task.getUser().getName(), task.getPriority().getId(), task.getPriority().getName(),
-                List.of(category.getId()), category.getName());
-        var intArgCaptor = ArgumentCaptor.forClass(Integer.class);
-        when(userService.findById(intArgCaptor.capture())).thenReturn(Optional.of(user));
-        var intArgCaptorPriority = ArgumentCaptor.forClass(Integer.class);
-        when(priorityService.findById(intArgCaptorPriority.capture())).thenReturn(Optional.of(priority));
+                List.of(1), "test1", 3);
         var taskArgCaptor = ArgumentCaptor.forClass(Task.class);
-        when(store.update(taskArgCaptor.capture())).thenReturn(true);
-        when(categoryService.findAll()).thenReturn(List.of(category));
+        when(store.update(taskArgCaptor.capture())).thenReturn(UpdateResult.UPDATED);
 
-        var actual = service.update(taskDto);
+        var actual = service.update(taskDto, user);
         var actualTask = taskArgCaptor.getValue();
-        var actualId = intArgCaptor.getValue();
-        var actualIdPriority = intArgCaptorPriority.getValue();
 
-        assertThat(actual).isTrue();
+        assertThat(actual).isEqualTo(UpdateResult.UPDATED);
         assertThat(actualTask).usingRecursiveComparison()
                 .withComparatorForType(
                         Comparator.comparing(o -> o.truncatedTo(ChronoUnit.SECONDS)),
                         LocalDateTime.class)
                 .isEqualTo(task);
-        assertThat(actualId).isEqualTo(id);
-        assertThat(actualIdPriority).isEqualTo(idPriority);
     }
 
     /**
-     * Проверяет неуспешный сценарий обновления задания методом {@code update}
+     * Проверяет неуспешный сценарий обновления задания методом {@code update}:
+     * конфликт версий передается вызывающему
      */
     @Test
-    void whenUpdateUnSuccessfulThenGetFalse() {
+    void whenUpdateConflictThenGetConflict() {
         var id = 1;
         var category = new Category(id, "test1");
         var task = new Task(id, "test1", "desc1", LocalDateTime.now(), false,
-                new User(), new Priority(), List.of(category));
+                new User(), new Priority(), Set.of(category), 0);
         var taskDto = new TaskDTO(task.getId(), task.getTitle(), task.getDescription(), task.getCreated(), task.isDone(),
                 task.getUser().getId(), task.getUser().getName(), task.getPriority().getId(), task.getPriority().getName(),
-                List.of(id), category.getName());
-        when(store.update(any(Task.class))).thenReturn(false);
+                List.of(id), category.getName(), 0);
+        when(store.update(any(Task.class))).thenReturn(UpdateResult.CONFLICT);
 
-        var actual = service.update(taskDto);
+        var actual = service.update(taskDto, task.getUser());
 
-        assertThat(actual).isFalse();
+        assertThat(actual).isEqualTo(UpdateResult.CONFLICT);
     }
 
     /**
-     * Проверяет успешный сценарий сохранения задания методом {@code save}
+     * Проверяет успешный сценарий сохранения задания методом {@code save}: автор, приоритет
+     * и категории передаются хранилищу ссылками только с идентификаторами
      */
     @Test
     void whenSaveSuccessfulThenGetTrue() {
@@ -266,23 +361,16 @@ class SimpleTaskServiceTest {
         var idPriority = 2;
         var priority = new Priority();
         priority.setId(idPriority);
-        var category = new Category(1, "test1");
-        var task = new Task(id, "test1", "desc1", LocalDateTime.now(), false, user, priority, List.of(category));
+        var task = new Task(id, "test1", "desc1", LocalDateTime.now(), false, user, priority,
+                Set.of(new Category(1, null)), 0);
         var taskDto = new TaskDTO(task.getId(), task.getTitle(), task.getDescription(), task.getCreated(), task.isDone(),
                 task.getUser().getId(), task.getUser().getName(), task.getPriority().getId(), task.getPriority().getName(),
-                List.of(category.getId()), category.getName());
-        var intArgCaptor = ArgumentCaptor.forClass(Integer.class);
-        when(userService.findById(intArgCaptor.capture())).thenReturn(Optional.of(user));
-        var intArgCaptorPriority = ArgumentCaptor.forClass(Integer.class);
-        when(priorityService.findById(intArgCaptorPriority.capture())).thenReturn(Optional.of(priority));
+                List.of(1), "test1", 0);
         var taskArgCaptor = ArgumentCaptor.forClass(Task.class);
         when(store.save(taskArgCaptor.capture())).thenReturn(true);
-        when(categoryService.findAll()).thenReturn(List.of(category));
 
-        var actual = service.save(taskDto);
+        var actual = service.save(taskDto, user);
         var actualTask = taskArgCaptor.getValue();
-        var actualId = intArgCaptor.getValue();
-        var actualIdPriority = intArgCaptorPriority.getValue();
 
         assertThat(actual).isTrue();
         assertThat(actualTask).usingRecursiveComparison()
@@ -290,8 +378,6 @@ class SimpleTaskServiceTest {
                         Comparator.comparing(o -> o.truncatedTo(ChronoUnit.SECONDS)),
                         LocalDateTime.class)
                 .isEqualTo(task);
-        assertThat(actualId).isEqualTo(id);
-        assertThat(actualIdPriority).isEqualTo(idPriority);
     }
 
     /**
@@ -301,14 +387,63 @@ class SimpleTaskServiceTest {
     void whenSaveUnSuccessfulThenGetFalse() {
         var id = 1;
         var category = new Category(id, "test1");
-        var task = new Task(id, "test1", "desc1", LocalDateTime.now(), false, new User(), new Priority(), List.of(category));
+        var task = new Task(id, "test1", "desc1", LocalDateTime.now(), false, new User(), new Priority(), Set.of(category), 0);
         var taskDto = new TaskDTO(task.getId(), task.getTitle(), task.getDescription(), task.getCreated(), task.isDone(),
                 task.getUser().getId(), task.getUser().getName(), task.getPriority().getId(), task.getPriority().getName(),
-                List.of(category.getId()), category.getName());
+                List.of(category.getId()), category.getName(), 0);
         when(store.save(any(Task.class))).thenReturn(false);
 
-        var actual = service.save(taskDto);
+        var actual = service.save(taskDto, task.getUser());
 
         assertThat(actual).isFalse();
     }
-}
\ No newline at end of file
+
+    /**
+     * Проверяет, что {@code save} делает автором пользователя сессии, а не {@code userId} из формы,
+     * и меняет версию данных только этого пользователя
+     */
+    @Test
+    void whenSaveWithForeignUserIdThenSessionUserIsAuthor() {
+        user.setId(1);
+        var taskDto = new TaskDTO(0, "test1", "desc1", LocalDateTime.now(), false, 2, "", 0, "", List.of(), "", 0);
+        var taskArgCaptor = ArgumentCaptor.forClass(Task.class);
+        when(store.save(taskArgCaptor.capture())).thenReturn(true);
+        var foreignUser = new User();
+        foreignUser.setId(2);
+        var versionBefore = service.getVersion(user);
+        var foreignVersionBefore = service.getVersion(foreignUser);
+
+        var actual = service.save(taskDto, user);
+
+        assertThat(actual).isTrue();
+        assertThat(taskArgCaptor.getValue().getUser().getId()).isEqualTo(1);
+        assertThat(service.getVersion(user)).isNotEqualTo(versionBefore);
+        assertThat(service.getVersion(foreignUser)).isEqualTo(foreignVersionBefore);
+    }
+
+    /**
+     * Проверяет сценарий пакетного сохранения заданий методом {@code saveAll}:
+     * задания одного автора получают одну общую ссылку на него, справочники не запрашиваются
+     */
+    @Test
+    void whenSaveAllThenSaveAllTasksWithSharedUserReference() {
+        user.setId(1);
+        var taskDtos = List.of(
+                new TaskDTO(0, "test1", "desc1", LocalDateTime.now(), false, 1, "", 2, "", List.of(1), "", 0),
+                new TaskDTO(0, "test2", "desc2", LocalDateTime.now(), true, 1, "", 0, "", List.of(), "", 0));
+        ArgumentCaptor<Collection<Task>> tasksCaptor = ArgumentCaptor.forClass(Collection.class);
+        when(store.saveAll(tasksCaptor.capture())).thenReturn(true);
+
+        var actual = service.saveAll(taskDtos, user);
+        var actualTasks = List.copyOf(tasksCaptor.getValue());
+
+        assertThat(actual).isTrue();
+        assertThat(actualTasks)
+                .extracting(Task::getTitle, task -> task.getUser().getId(),
+                        task -> task.getPriority() != null ? task.getPriority().getId() : null,
+                        task -> task.getCategories().stream().map(Category::getId).toList())
+                .containsExactly(tuple("test1", 1, 2, List.of(1)),
+                        tuple("test2", 1, null, List.of()));
+        assertThat(actualTasks.get(0).getUser()).isSameAs(actualTasks.get(1).getUser());
+    }
+}
@@ -0,0 +1,59 @@
+package ru.job4j.todo.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.job4j.todo.dto.TimeZoneDTO;
+import ru.job4j.todo.service.timezone.SimpleTimeZoneService;
+
+import java.time.Clock;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SimpleTimeZoneServiceTest {
+
+    private Clock clock;
+    private SimpleTimeZoneService service;
+
+    @BeforeEach
+    void setUp() {
+        clock = mock(Clock.class);
+        service = new SimpleTimeZoneService(clock);
+    }
+
+    /**
+     * Проверяет, что до ближайшего перехода смещения список поясов не перестраивается
+     */
+    @Test
+    void whenGetCatalogBeforeTransitionThenGetSameCatalog() {
+        when(clock.instant()).thenReturn(Instant.parse("2024-03-31T00:30:00Z"));
+        var first = service.getCatalog();
+        when(clock.instant()).thenReturn(Instant.parse("2024-03-31T00:59:00Z"));
+
+        var second = service.getCatalog();
+
+        assertThat(second).isSameAs(first);
+        assertThat(first.expires()).isBeforeOrEqualTo(Instant.parse("2024-03-31T01:00:00Z"));
+        assertThat(first.zones()).extracting(TimeZoneDTO::name)
+                .anyMatch(name -> name.startsWith("Europe/Berlin : (UTC +01:00)"));
+    }
+
+    /**
+     * Проверяет, что после перехода на летнее время список поясов перестраивается с новыми смещениями и версией
+     */
+    @Test
+    void whenGetCatalogAfterTransitionThenGetRebuiltCatalog() {
+        when(clock.instant()).thenReturn(Instant.parse("2024-03-31T00:30:00Z"));
+        var before = service.getCatalog();
+        when(clock.instant()).thenReturn(Instant.parse("2024-03-31T01:30:00Z"));
+
+        var after = service.getCatalog();
+
+        assertThat(after).isNotSameAs(before);
+        assertThat(after.version()).isNotEqualTo(before.version());
+        assertThat(after.zones()).extracting(TimeZoneDTO::name)
+                .anyMatch(name -> name.startsWith("Europe/Berlin : (UTC +02:00)"));
+    }
+}